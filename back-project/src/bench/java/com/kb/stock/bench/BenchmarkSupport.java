@@ -0,0 +1,65 @@
+package com.kb.stock.bench;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 벤치마크 공용 측정 도구
+ * 워밍업 후 같은 작업을 반복해 연산당 시간(ns)과 연산당 할당량(byte)을 출력한다.
+ */
+public final class BenchmarkSupport {
+
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // JIT 가 결과를 버리지 못하도록 누적
+    private static long blackhole;
+
+    private BenchmarkSupport() {
+    }
+
+    public interface Operation {
+        Object run() throws Exception;
+    }
+
+    public static void measure(String name, int warmupOps, int measuredOps, Operation operation) throws Exception {
+        for (int i = 0; i < warmupOps; i++) {
+            consume(operation.run());
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < measuredOps; i++) {
+            consume(operation.run());
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREAD_MX_BEAN.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("%-32s %10.1f ns/op %12.0f ops/s %10.1f B/op%n",
+                name,
+                (double) elapsed / measuredOps,
+                measuredOps * 1_000_000_000.0 / elapsed,
+                (double) allocated / measuredOps);
+    }
+
+    public static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void consume(Object value) {
+        blackhole += value == null ? 0 : System.identityHashCode(value);
+    }
+
+    public static long blackhole() {
+        return blackhole;
+    }
+}
@@ -0,0 +1,143 @@
+package com.kb.stock.bench;
+
+import com.kb.stock.cache.CandleSlice;
+import com.kb.stock.cache.MappedCandleStore;
+import com.kb.stock.dto.StockCandleDTO;
+import com.kb.stock.mapper.StockCandleMapper;
+import org.apache.ibatis.logging.nologging.NoLoggingImpl;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 차트 기간 조회 비교 (1년, 5년 일봉)
+ * - mybatis     : StockCandleMapper.getStockData (BETWEEN 조회 + 행마다 StockCandleDTO 매핑)
+ * - mapped      : MappedCandleStore.range (날짜 열 이진 탐색 + 매핑 버퍼 구간, 복사 없음)
+ * - mapped+dto  : 위 구간을 API 응답용 StockCandleDTO 목록으로 변환까지
+ * DB 는 같은 프로세스의 H2(MySQL 모드) 인메모리라 네트워크 왕복이 없다. 실제 MySQL 보다 mybatis 쪽이 유리한 조건이다.
+ *
+ * 실행: ./gradlew benchmark -PbenchClass=com.kb.stock.bench.CandleRangeQueryBenchmark
+ */
+public class CandleRangeQueryBenchmark {
+
+    private static final int SYMBOLS = 20;
+    private static final int YEARS = 10;
+
+    private static final int WARMUP_OPS = 2_000;
+    private static final int MEASURED_OPS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:candles;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE stocks_candle (id INT AUTO_INCREMENT PRIMARY KEY, stock_code VARCHAR(10) NOT NULL,"
+                    + " stock_candle_day DATE NOT NULL, stock_candle_open FLOAT NOT NULL, stock_candle_close FLOAT NOT NULL,"
+                    + " stock_candle_high FLOAT NOT NULL, stock_candle_low FLOAT NOT NULL, stock_candle_volume BIGINT,"
+                    + " UNIQUE (stock_code, stock_candle_day))");
+        }
+
+        Configuration configuration = new Configuration(new Environment("bench", new JdbcTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.setLogImpl(NoLoggingImpl.class);
+        // 같은 세션의 같은 조회를 1차 캐시에서 돌려주지 않도록 (서비스에서는 요청마다 새 세션)
+        configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+        configuration.addMapper(StockCandleMapper.class);
+        SqlSession session = new SqlSessionFactoryBuilder().build(configuration).openSession(true);
+        StockCandleMapper mapper = session.getMapper(StockCandleMapper.class);
+
+        LocalDate today = LocalDate.now();
+        String[] stockCodes = new String[SYMBOLS];
+        int rows = 0;
+        for (int s = 0; s < SYMBOLS; s++) {
+            stockCodes[s] = String.format("%06d", s * 7 + 20);
+            List<StockCandleDTO> candles = history(stockCodes[s], today.minusYears(YEARS), today);
+            for (int i = 0; i < candles.size(); i += 500) {
+                mapper.upsertStockCandles(candles.subList(i, Math.min(i + 500, candles.size())));
+            }
+            rows += candles.size();
+        }
+
+        Path directory = Files.createTempDirectory("kb-candles");
+        MappedCandleStore store = new MappedCandleStore();
+        set(store, "stockCandleMapper", mapper);
+        set(store, "enabled", true);
+        set(store, "directory", directory.toString());
+        store.init();
+        for (String stockCode : stockCodes) {
+            store.range(stockCode, today, today); // 파일 생성 (DB 전체 기간 한 번 읽기)
+        }
+        System.out.printf("%d symbols, %d daily rows, store at %s%n", SYMBOLS, rows, directory);
+
+        // 두 경로 결과가 같은지 먼저 확인
+        for (String stockCode : stockCodes) {
+            List<StockCandleDTO> expected = mapper.getStockData(stockCode, today.minusYears(5), today);
+            List<StockCandleDTO> actual = store.range(stockCode, today.minusYears(5), today).toDtos(stockCode);
+            if (!expected.equals(actual)) {
+                throw new IllegalStateException("Mapped store differs from DB for " + stockCode);
+            }
+        }
+
+        int[] cursor = new int[1];
+        for (int round = 0; round < 3; round++) {
+            for (int years : new int[]{1, 5}) {
+                LocalDate from = today.minusYears(years);
+                BenchmarkSupport.measure("mybatis " + years + "y", WARMUP_OPS / 10, MEASURED_OPS / 10,
+                        () -> mapper.getStockData(stockCodes[cursor[0]++ % SYMBOLS], from, today));
+                BenchmarkSupport.measure("mapped " + years + "y", WARMUP_OPS, MEASURED_OPS, () -> {
+                    CandleSlice slice = store.range(stockCodes[cursor[0]++ % SYMBOLS], from, today);
+                    return slice.size() > 0 ? slice : null;
+                });
+                BenchmarkSupport.measure("mapped+dto " + years + "y", WARMUP_OPS, MEASURED_OPS, () -> {
+                    String stockCode = stockCodes[cursor[0]++ % SYMBOLS];
+                    return store.range(stockCode, from, today).toDtos(stockCode);
+                });
+            }
+        }
+        System.out.println(store.getMetrics());
+        System.out.println("blackhole " + BenchmarkSupport.blackhole());
+        session.close();
+    }
+
+    // 주말을 뺀 거래일마다 임의 보행 가격의 일봉
+    private static List<StockCandleDTO> history(String stockCode, LocalDate from, LocalDate to) {
+        List<StockCandleDTO> candles = new ArrayList<>();
+        double price = 10_000 + stockCode.hashCode() % 5_000;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY) {
+                continue;
+            }
+            double open = price;
+            price = Math.max(100, Math.round(price * (1 + (Math.random() - 0.5) * 0.04)));
+            StockCandleDTO candle = new StockCandleDTO();
+            candle.setStockCode(stockCode);
+            candle.setStockCandleDay(day.toString());
+            candle.setStockCandleOpen((float) open);
+            candle.setStockCandleClose((float) price);
+            candle.setStockCandleHigh((float) Math.max(open, price) + 50);
+            candle.setStockCandleLow((float) Math.min(open, price) - 50);
+            candle.setStockCandleVolume(100_000L + (long) (Math.random() * 1_000_000));
+            candles.add(candle);
+        }
+        return candles;
+    }
+
+    private static void set(Object target, String fieldName, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
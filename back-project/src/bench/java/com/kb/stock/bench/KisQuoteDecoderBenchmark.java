@@ -0,0 +1,102 @@
+package com.kb.stock.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kb.stock.dto.KisQuote;
+import com.kb.stock.dto.StockDTO;
+import com.kb.stock.service.KisQuoteDecoder;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * inquire-price 응답 디코딩 비교
+ * - map-path    : 기존 방식. ObjectMapper 로 Map 변환 후 필드마다 toString() → new BigDecimal
+ * - stream-path : KisQuoteDecoder 로 필요한 필드만 스트리밍 디코딩 + StockDTO 변환 (운영 경로와 같은 일)
+ * 두 경로 모두 같은 StockDTO(BigDecimal 12개)를 만들어 돌려준다.
+ *
+ * 실행: ./gradlew benchmark -PbenchClass=com.kb.stock.bench.KisQuoteDecoderBenchmark
+ */
+public class KisQuoteDecoderBenchmark {
+
+    // 실제 응답과 같은 구성의 output (약 80개 필드)
+    static final byte[] SAMPLE_BODY = ("{\"output\":{"
+            + "\"iscd_stat_cls_code\":\"55\",\"marg_rate\":\"20.00\",\"rprs_mrkt_kor_name\":\"KOSPI200\","
+            + "\"new_hgpr_lwpr_cls_code\":\"\",\"bstp_kor_isnm\":\"전기.전자\",\"temp_stop_yn\":\"N\","
+            + "\"oprc_rang_cont_yn\":\"N\",\"clpr_rang_cont_yn\":\"N\",\"crdt_able_yn\":\"Y\","
+            + "\"grmn_rate_cls_code\":\"40\",\"elec_stck_yn\":\"N\",\"stck_prpr\":\"71400\","
+            + "\"prdy_vrss\":\"-600\",\"prdy_vrss_sign\":\"5\",\"prdy_ctrt\":\"-0.83\","
+            + "\"acml_tr_pbmn\":\"1063585470538\",\"acml_vol\":\"14876297\",\"prdy_vrss_vol_rate\":\"94.74\","
+            + "\"stck_oprc\":\"71800\",\"stck_hgpr\":\"72100\",\"stck_lwpr\":\"71200\",\"stck_mxpr\":\"93600\","
+            + "\"stck_llam\":\"50400\",\"stck_sdpr\":\"72000\",\"wghn_avrg_stck_prc\":\"71495.95\","
+            + "\"hts_frgn_ehrt\":\"55.19\",\"frgn_ntby_qty\":\"-412345\",\"pgtr_ntby_qty\":\"-1234567\","
+            + "\"pvt_scnd_dmrs_prc\":\"72766\",\"pvt_frst_dmrs_prc\":\"72433\",\"pvt_pont_val\":\"71866\","
+            + "\"pvt_frst_dmsp_prc\":\"71533\",\"pvt_scnd_dmsp_prc\":\"70966\",\"dmrs_val\":\"72150\","
+            + "\"dmsp_val\":\"71350\",\"cpfn\":\"7780\",\"rstc_wdth_prc\":\"21600\",\"stck_fcam\":\"100\","
+            + "\"stck_sspr\":\"55440\",\"aspr_unit\":\"100\",\"hts_deal_qty_unit_val\":\"1\","
+            + "\"lstn_stcn\":\"5969782550\",\"hts_avls\":\"4262425\",\"per\":\"14.30\",\"pbr\":\"1.36\","
+            + "\"stac_month\":\"12\",\"vol_tnrt\":\"0.25\",\"eps\":\"4994.00\",\"bps\":\"52002.00\","
+            + "\"d250_hgpr\":\"88800\",\"d250_hgpr_date\":\"20240711\",\"d250_hgpr_vrss_prpr_rate\":\"-19.59\","
+            + "\"d250_lwpr\":\"68300\",\"d250_lwpr_date\":\"20231101\",\"d250_lwpr_vrss_prpr_rate\":\"4.54\","
+            + "\"stck_dryy_hgpr\":\"88800\",\"dryy_hgpr_vrss_prpr_rate\":\"-19.59\",\"dryy_hgpr_date\":\"20240711\","
+            + "\"stck_dryy_lwpr\":\"70100\",\"dryy_lwpr_vrss_prpr_rate\":\"1.85\",\"dryy_lwpr_date\":\"20240103\","
+            + "\"w52_hgpr\":\"88800\",\"w52_hgpr_vrss_prpr_ctrt\":\"-19.59\",\"w52_hgpr_date\":\"20240711\","
+            + "\"w52_lwpr\":\"68300\",\"w52_lwpr_vrss_prpr_ctrt\":\"4.54\",\"w52_lwpr_date\":\"20231101\","
+            + "\"whol_loan_rmnd_rate\":\"0.13\",\"ssts_yn\":\"Y\",\"stck_shrn_iscd\":\"005930\","
+            + "\"fcam_cnnm\":\"100\",\"cpfn_cnnm\":\"7,780 억\",\"frgn_hldn_qty\":\"3294719000\","
+            + "\"vi_cls_code\":\"N\",\"ovtm_vi_cls_code\":\"N\",\"last_ssts_cntg_qty\":\"123456\","
+            + "\"invt_caful_yn\":\"N\",\"mrkt_warn_cls_code\":\"00\",\"short_over_yn\":\"N\",\"sltr_yn\":\"N\""
+            + "},\"rt_cd\":\"0\",\"msg_cd\":\"MCA00000\",\"msg1\":\"정상처리 되었습니다.\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final String STOCK_NAME = "삼성전자";
+
+    private static final int WARMUP_OPS = 200_000;
+    private static final int MEASURED_OPS = 500_000;
+
+    public static void main(String[] args) throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        KisQuoteDecoder decoder = new KisQuoteDecoder();
+
+        KisQuote sample = decoder.decode(SAMPLE_BODY);
+        System.out.println("decoded " + sample);
+        System.out.println("map-path    " + mapPath(objectMapper, SAMPLE_BODY));
+        System.out.println("stream-path " + KisQuoteDecoder.toStockDTO(sample, STOCK_NAME));
+        System.out.printf("payload %d bytes, %d ops%n", SAMPLE_BODY.length, MEASURED_OPS);
+        for (int round = 0; round < 3; round++) {
+            BenchmarkSupport.measure("map-path (Map + BigDecimal)", WARMUP_OPS, MEASURED_OPS,
+                    () -> mapPath(objectMapper, SAMPLE_BODY));
+            BenchmarkSupport.measure("stream-path (decode + DTO)", WARMUP_OPS, MEASURED_OPS,
+                    () -> KisQuoteDecoder.toStockDTO(decoder.decode(SAMPLE_BODY), STOCK_NAME));
+        }
+        System.out.println("blackhole " + BenchmarkSupport.blackhole());
+    }
+
+    // 기존 StockService.getStockPrice + mapToStockDTO 와 같은 변환
+    @SuppressWarnings("unchecked")
+    private static StockDTO mapPath(ObjectMapper objectMapper, byte[] body) throws Exception {
+        Map<String, Object> response = objectMapper.readValue(body, Map.class);
+        Map<String, Object> stockData = (Map<String, Object>) response.get("output");
+
+        StockDTO stockDTO = new StockDTO();
+        stockDTO.setStockCode((String) stockData.get("stck_shrn_iscd"));
+        stockDTO.setStockName(STOCK_NAME);
+        stockDTO.setCurrentPrice(decimal(stockData, "stck_prpr"));
+        stockDTO.setPriceChange(decimal(stockData, "prdy_vrss"));
+        stockDTO.setPriceChangePct(decimal(stockData, "prdy_ctrt"));
+        stockDTO.setHighPrice(decimal(stockData, "stck_hgpr"));
+        stockDTO.setLowPrice(decimal(stockData, "stck_lwpr"));
+        stockDTO.setOpeningPrice(decimal(stockData, "stck_oprc"));
+        stockDTO.setIndustry(stockData.get("bstp_kor_isnm") != null ? stockData.get("bstp_kor_isnm").toString() : "");
+        stockDTO.setVolume(stockData.get("acml_vol") != null ? Long.parseLong(stockData.get("acml_vol").toString()) : 0L);
+        stockDTO.setHtsAvls(decimal(stockData, "hts_avls"));
+        stockDTO.setW52Hgpr(decimal(stockData, "w52_hgpr"));
+        stockDTO.setW52Lwpr(decimal(stockData, "w52_lwpr"));
+        stockDTO.setAcmlTrPbmn(decimal(stockData, "acml_tr_pbmn"));
+        return stockDTO;
+    }
+
+    private static BigDecimal decimal(Map<String, Object> stockData, String key) {
+        return stockData.get(key) != null ? new BigDecimal(stockData.get(key).toString()) : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,116 @@
+package com.kb.stock.bench;
+
+import com.kb.stock.cache.QuoteBook;
+import com.kb.stock.dto.StockDTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 전 종목(KOSPI + KOSDAQ) 시세를 메모리에 들고 있는 비용 비교
+ * - dto-map   : 기존 방식. 종목별 StockDTO(BigDecimal 12개 + Long/LocalDateTime) 맵 + 현재가 Map<String, Double>
+ * - quote-book: QuoteBook 원시 타입 배열 (x100 고정소수점 long)
+ * 힙 사용량은 GC 후 측정한 차이라 대략적인 값이다.
+ *
+ * 실행: ./gradlew benchmark -PbenchClass=com.kb.stock.bench.QuoteBookFootprintBenchmark
+ */
+public class QuoteBookFootprintBenchmark {
+
+    // KOSPI 약 950 + KOSDAQ 약 1,800 종목
+    private static final int SYMBOLS = 2_750;
+
+    private static final int WARMUP_OPS = 200_000;
+    private static final int MEASURED_OPS = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        StockDTO[] quotes = new StockDTO[SYMBOLS];
+        for (int i = 0; i < SYMBOLS; i++) {
+            quotes[i] = sampleQuote(i);
+        }
+
+        long baseline = BenchmarkSupport.usedHeap();
+        Map<String, StockDTO> dtoMap = new HashMap<>(SYMBOLS * 2);
+        Map<String, Double> prices = new HashMap<>(SYMBOLS * 2);
+        for (StockDTO quote : quotes) {
+            StockDTO copy = copyOf(quote);
+            dtoMap.put(copy.getStockCode(), copy);
+            prices.put(copy.getStockCode(), copy.getCurrentPrice().doubleValue());
+        }
+        long dtoMapBytes = BenchmarkSupport.usedHeap() - baseline;
+
+        baseline = BenchmarkSupport.usedHeap();
+        QuoteBook book = new QuoteBook(4096);
+        for (StockDTO quote : quotes) {
+            book.put(quote);
+        }
+        long quoteBookBytes = BenchmarkSupport.usedHeap() - baseline;
+
+        System.out.printf("%d symbols%n", SYMBOLS);
+        System.out.printf("%-32s %12d bytes %8.1f B/symbol%n", "dto-map (StockDTO + prices)", dtoMapBytes, (double) dtoMapBytes / SYMBOLS);
+        System.out.printf("%-32s %12d bytes %8.1f B/symbol%n", "quote-book (long[] columns)", quoteBookBytes, (double) quoteBookBytes / SYMBOLS);
+
+        // 갱신/조회 비용 (체결가 한 건 반영, API 경계에서 StockDTO 한 건 만들기, 현재가 한 건 읽기)
+        int[] cursor = new int[1];
+        for (int round = 0; round < 3; round++) {
+            BenchmarkSupport.measure("quote-book put", WARMUP_OPS, MEASURED_OPS, () -> {
+                StockDTO quote = quotes[cursor[0]++ % SYMBOLS];
+                book.put(quote);
+                return quote;
+            });
+            BenchmarkSupport.measure("quote-book toDto", WARMUP_OPS, MEASURED_OPS,
+                    () -> book.toDto(cursor[0]++ % SYMBOLS));
+            BenchmarkSupport.measure("quote-book price", WARMUP_OPS, MEASURED_OPS,
+                    () -> book.getPriceFixedPoint(cursor[0]++ % SYMBOLS) > 0 ? book : null);
+        }
+        System.out.println("retained " + dtoMap.size() + " / " + prices.size() + " / " + book.size());
+        System.out.println("blackhole " + BenchmarkSupport.blackhole());
+    }
+
+    private static StockDTO sampleQuote(int i) {
+        long price = 1_000 + (i * 7919L) % 500_000;
+        StockDTO stockData = new StockDTO();
+        stockData.setId((long) i + 1);
+        stockData.setStockCode(String.format("%06d", i * 7 + 20));
+        stockData.setStockName("종목" + i);
+        stockData.setIndustry(i % 2 == 0 ? "전기.전자" : "제약");
+        stockData.setCurrentPrice(BigDecimal.valueOf(price));
+        stockData.setPriceChange(BigDecimal.valueOf(-price / 100));
+        stockData.setPriceChangePct(new BigDecimal("-1.00"));
+        stockData.setOpeningPrice(BigDecimal.valueOf(price + 100));
+        stockData.setHighPrice(BigDecimal.valueOf(price + 300));
+        stockData.setLowPrice(BigDecimal.valueOf(price - 200));
+        stockData.setVolume(1_000_000L + i);
+        stockData.setAcmlTrPbmn(BigDecimal.valueOf(price * 1_000_000L));
+        stockData.setHtsAvls(BigDecimal.valueOf(42_624L + i));
+        stockData.setW52Hgpr(BigDecimal.valueOf(price * 2));
+        stockData.setW52Lwpr(BigDecimal.valueOf(price / 2));
+        stockData.setLastUpdated(LocalDateTime.now());
+        stockData.setInvestmentCategory("안정성");
+        return stockData;
+    }
+
+    // 기존 스냅샷처럼 종목별로 독립된 객체를 들고 있도록 값 객체까지 새로 만든다
+    private static StockDTO copyOf(StockDTO source) {
+        StockDTO copy = new StockDTO();
+        copy.setId(Long.valueOf(source.getId().longValue()));
+        copy.setStockCode(source.getStockCode());
+        copy.setStockName(source.getStockName());
+        copy.setIndustry(source.getIndustry());
+        copy.setCurrentPrice(new BigDecimal(source.getCurrentPrice().toPlainString()));
+        copy.setPriceChange(new BigDecimal(source.getPriceChange().toPlainString()));
+        copy.setPriceChangePct(new BigDecimal(source.getPriceChangePct().toPlainString()));
+        copy.setOpeningPrice(new BigDecimal(source.getOpeningPrice().toPlainString()));
+        copy.setHighPrice(new BigDecimal(source.getHighPrice().toPlainString()));
+        copy.setLowPrice(new BigDecimal(source.getLowPrice().toPlainString()));
+        copy.setVolume(Long.valueOf(source.getVolume().longValue()));
+        copy.setAcmlTrPbmn(new BigDecimal(source.getAcmlTrPbmn().toPlainString()));
+        copy.setHtsAvls(new BigDecimal(source.getHtsAvls().toPlainString()));
+        copy.setW52Hgpr(new BigDecimal(source.getW52Hgpr().toPlainString()));
+        copy.setW52Lwpr(new BigDecimal(source.getW52Lwpr().toPlainString()));
+        copy.setLastUpdated(LocalDateTime.from(source.getLastUpdated()));
+        copy.setInvestmentCategory(source.getInvestmentCategory());
+        return copy;
+    }
+}
@@ -1,19 +1,33 @@
 package com.kb._config;
 
 import com.kb.stock.dto.StockDTO;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
 public class RedisConfig {
 
+    @Value("${redis.host:localhost}")
+    private String host;
+
+    @Value("${redis.port:6379}")
+    private int port;
+
+    @Value("${redis.database:0}")
+    private int database;
+
     @Bean
     public RedisConnectionFactory redisConnectionFactory() {
-        return new JedisConnectionFactory(); // Jedis를 사용하는 RedisConnectionFactory
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(host, port);
+        configuration.setDatabase(database);
+        return new JedisConnectionFactory(configuration); // Jedis를 사용하는 RedisConnectionFactory
     }
 
     @Bean
@@ -23,4 +37,10 @@ public class RedisConfig {
         template.setKeySerializer(new StringRedisSerializer());
         return template;
     }
-}
\ No newline at end of file
+
+    // 시세 해시(stock:quote:{종목코드})처럼 키/필드/값이 모두 문자열인 자료용
+    @Bean
+    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory) {
+        return new StringRedisTemplate(connectionFactory);
+    }
+}
@@ -2,12 +2,18 @@ package com.kb._config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.multipart.MultipartResolver;
 import org.springframework.web.multipart.support.StandardServletMultipartResolver;
 import org.springframework.web.servlet.config.annotation.*;
 
 @EnableWebMvc
-@ComponentScan(basePackages = {"com.kb.**"})
+// 서블릿 컨텍스트에는 컨트롤러만 올린다. 서비스/스케줄러 등은 RootConfig 의 빈을 함께 쓴다
+// (두 컨텍스트가 모두 스캔하면 KIS 실시간 연결, 보충 조회 스레드, 캐시가 두 벌 생긴다)
+@ComponentScan(basePackages = {"com.kb.**"}, useDefaultFilters = false,
+        includeFilters = @ComponentScan.Filter(type = FilterType.ANNOTATION, classes = {Controller.class, ControllerAdvice.class}))
 public class ServletConfig  implements WebMvcConfigurer {
 
     @Override
@@ -0,0 +1,81 @@
+package com.kb._config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.config.StompBrokerRelayRegistration;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+
+import java.util.List;
+
+/**
+ * STOMP 시세 구독 (/api/ws/stomp, SockJS)
+ * 종목마다 /topic/stock.{종목코드} 토픽을 하나씩 둔다.
+ * stock.stomp.relay.enabled=false 면 이 JVM 안의 simple broker 만 쓰고,
+ * true 면 외부 STOMP 브로커(RabbitMQ STOMP 플러그인, ActiveMQ 등)로 릴레이해
+ * 어느 노드에서 수집한 시세든 모든 노드의 구독자에게 전달된다.
+ */
+@Configuration
+@EnableWebSocketMessageBroker
+public class StompConfig implements WebSocketMessageBrokerConfigurer {
+
+    @Value("${stock.stomp.relay.enabled:false}")
+    private boolean relayEnabled;
+
+    @Value("${stock.stomp.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${stock.stomp.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${stock.stomp.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${stock.stomp.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${stock.stomp.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/api/ws/stomp")
+                .setAllowedOriginPatterns("*")
+                .withSockJS();
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        registry.setApplicationDestinationPrefixes("/app");
+        if (relayEnabled) {
+            // 클라이언트 연결과 서버 발행(system) 연결 모두 같은 계정 사용
+            StompBrokerRelayRegistration relay = registry.enableStompBrokerRelay("/topic")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode);
+            if (!relayVirtualHost.isEmpty()) {
+                relay.setVirtualHost(relayVirtualHost);
+            }
+        } else {
+            registry.enableSimpleBroker("/topic");
+        }
+    }
+
+    // 캐시 시세의 lastUpdated(LocalDateTime) 직렬화
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(new ObjectMapper().registerModule(new JavaTimeModule()));
+        messageConverters.add(converter);
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+package com.kb.stock.cache;
+
+import com.kb.stock.dto.StockCandleDTO;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MappedCandleStore 의 기간 조회 결과
+ * 종목 파일의 매핑된 버퍼를 복사하지 않고 [from, to) 행 번호만 들고 있다.
+ * 파일 뒤에 봉이 추가되거나 파일이 새로 만들어져도 이미 꺼낸 구간의 값은 바뀌지 않는다.
+ */
+public final class CandleSlice {
+
+    static final CandleSlice EMPTY = new CandleSlice(null, 0, 0, 0);
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final int from;
+    private final int to;
+
+    CandleSlice(ByteBuffer buffer, int capacity, int from, int to) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.from = from;
+        this.to = to;
+    }
+
+    public int size() {
+        return to - from;
+    }
+
+    // 거래일 (epoch day)
+    public int epochDay(int index) {
+        return intAt(MappedCandleStore.DAY, index);
+    }
+
+    // 가격 (x100 고정소수점)
+    public int open(int index) {
+        return intAt(MappedCandleStore.OPEN, index);
+    }
+
+    public int high(int index) {
+        return intAt(MappedCandleStore.HIGH, index);
+    }
+
+    public int low(int index) {
+        return intAt(MappedCandleStore.LOW, index);
+    }
+
+    public int close(int index) {
+        return intAt(MappedCandleStore.CLOSE, index);
+    }
+
+    public long volume(int index) {
+        return buffer.getLong(MappedCandleStore.volumeOffset(capacity) + (from + index) * Long.BYTES);
+    }
+
+    // API 경계에서 StockCandleDTO 목록으로 변환
+    public List<StockCandleDTO> toDtos(String stockCode) {
+        List<StockCandleDTO> candles = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            StockCandleDTO candle = new StockCandleDTO();
+            candle.setStockCode(stockCode);
+            candle.setStockCandleDay(LocalDate.ofEpochDay(epochDay(i)).toString());
+            candle.setStockCandleOpen(open(i) / 100f);
+            candle.setStockCandleClose(close(i) / 100f);
+            candle.setStockCandleHigh(high(i) / 100f);
+            candle.setStockCandleLow(low(i) / 100f);
+            candle.setStockCandleVolume(volume(i));
+            candles.add(candle);
+        }
+        return candles;
+    }
+
+    private int intAt(int column, int index) {
+        return buffer.getInt(MappedCandleStore.intColumnOffset(column, capacity) + (from + index) * Integer.BYTES);
+    }
+}
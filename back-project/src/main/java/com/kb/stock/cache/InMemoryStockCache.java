@@ -1,26 +1,330 @@
 package com.kb.stock.cache;
 
+import com.kb.stock.dto.StockChangesDTO;
 import com.kb.stock.dto.StockDTO;
+import com.kb.stock.mapper.StockMapper;
+import com.kb.stock.service.StockCandleAggregator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * 전 종목 최신 시세 스냅샷
+ * 시세 수집(REST 조회, 실시간 체결가)이 이 캐시에 쓰고, 조회 API 와 WebSocket 초기 데이터는 여기서 읽는다.
+ * 시세는 QuoteBook(종목 번호별 원시 타입 배열)에 두고 StockDTO 는 읽을 때만 만든다.
+ * 쓰기는 한 번에 하나씩(synchronized) 반영하고 버전을 올린다. 읽기는 잠금 없이 QuoteBook 에서 바로 읽는다.
+ * 꺼내 간 StockDTO 는 읽을 때마다 새로 만든 복사본이다.
+ * 전 종목 스냅샷(Snapshot)은 쓰는 쪽이 바뀐 종목만 반영해 둔 맵을 복사해 발행한다.
+ * 쓰기마다 만들지 않고 stock.cache.snapshot-interval-ms 에 한 번씩 묶어 발행하며, 읽는 쪽은 참조 하나만 읽는다.
+ *
+ * 수집한 시세는 종목별 장중 기록(StockTickBuffer)에 한 건씩 남기고 분봉/일봉 집계(StockCandleAggregator)에도 넘긴다.
+ * DB/Redis 에서 다시 읽어 채운 값(reload)은 새 체결이 아니므로 넘기지 않는다.
+ *
+ * 버전마다 바뀐 종목 코드를 고정 크기 링(stock.cache.change-log-size)에 남겨
+ * 특정 버전 이후 바뀐 종목만 돌려줄 수 있다. 링에서 이미 밀려난 버전이면 전체 스냅샷을 돌려준다.
+ * 버전은 프로세스마다 0 부터 다시 세므로 프로세스마다 임의의 epoch 를 두고, epoch 가 다른 since 는 전체 스냅샷으로 답한다
+ * (서버 재시작, 로드밸런서가 다른 노드로 보낸 경우).
+ *
+ * stock.redis.mode=replica 면 DB 대신 Redis 공유 스냅샷(RedisQuoteStore)에서 채운다.
+ */
+@Component
 public class InMemoryStockCache {
 
-    private Map<String, StockDTO> stockCache = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryStockCache.class);
+
+    @Autowired
+    private StockMapper stockMapper;
+
+    @Autowired
+    private RedisQuoteStore redisQuoteStore;
+
+    @Autowired
+    private StockTickBuffer tickBuffer;
+
+    @Autowired
+    private StockCandleAggregator candleAggregator;
+
+    @Value("${stock.cache.snapshot-interval-ms:200}")
+    private long snapshotIntervalMs;
+
+    @Value("${stock.cache.change-log-size:4096}")
+    private int changeLogSize;
+
+    // KOSPI + KOSDAQ 전 종목이 들어가는 크기 (넘으면 두 배로 늘린다)
+    @Value("${stock.cache.initial-capacity:4096}")
+    private int initialCapacity;
+
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+    private QuoteBook book;
+    private volatile long version;
+    private volatile Snapshot snapshot;
+    // 쓰는 쪽만 쓰는 종목별 최신 시세 (발행할 때 복사)
+    private final Map<String, StockDTO> latest = new HashMap<>();
+    private long lastPublishedNanos;
+    private AtomicReferenceArray<ChangeEntry> changeLog;
+
+    @PostConstruct
+    public void init() {
+        book = new QuoteBook(initialCapacity);
+        snapshot = new Snapshot(0, Map.of());
+        changeLog = new AtomicReferenceArray<>(changeLogSize);
+        reload();
+        publishPendingSnapshot();
+    }
+
+    @Scheduled(fixedDelayString = "${stock.cache.reload-interval-ms:600000}", initialDelayString = "${stock.cache.reload-interval-ms:600000}")
+    public void reload() {
+        if (redisQuoteStore.isReplica()) {
+            reloadFromRedis();
+        } else {
+            reloadFromDatabase();
+        }
+    }
+
+    // 알림을 놓쳤을 수 있으므로 Redis 의 전 종목을 다시 읽는다
+    public void reloadFromRedis() {
+        try {
+            List<StockDTO> stocks = redisQuoteStore.loadAll();
+            if (!stocks.isEmpty()) {
+                apply(stocks, false);
+            }
+            logger.info("Stock cache reloaded from Redis: {} stocks (version {})", stocks.size(), version);
+        } catch (Exception e) {
+            logger.error("Error loading stock cache from Redis: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 다른 프로세스(크롤러 등)가 DB 에 쓴 시세를 반영
+     * 캐시에 없는 종목, 또는 캐시보다 나중에 저장됐고 값도 다른 행만 반영한다.
+     * - 캐시보다 오래된 행: 아직 write-behind 버퍼에 있거나 DB 에 쓰지 않는 갱신(기준 시세 없는 체결가 등) 이전 값이므로 되돌리지 않는다.
+     * - 나중에 저장됐지만 값이 같은 행: 이 노드의 write-behind 가 저장 시각(NOW())만 새로 찍은 것이다.
+     */
+    public void reloadFromDatabase() {
+        try {
+            List<StockDTO> rows = stockMapper.selectAllStocks();
+            List<StockDTO> changed = new ArrayList<>();
+            for (StockDTO row : rows) {
+                if (book.isOlderThan(row) && !book.hasSameContent(row)) {
+                    changed.add(row);
+                }
+            }
+            if (!changed.isEmpty()) {
+                apply(changed, false);
+            }
+            logger.info("Stock cache reloaded from database: {} rows, {} applied (version {})", rows.size(), changed.size(), version);
+        } catch (Exception e) {
+            logger.error("Error loading stock cache from database: {}", e.getMessage(), e);
+        }
+    }
 
     // 주식 데이터 저장
-    public void updateStockData(String stockCode, StockDTO stockData) {
-        stockCache.put(stockCode, stockData);
+    public void updateStockData(StockDTO stockData) {
+        updateAll(Collections.singletonList(stockData));
+    }
+
+    /**
+     * 여러 종목을 한 번에 저장 (버전 하나)
+     * 새 시세에 없는 값(DB id, 투자 성향, 시가총액, 52주 최고/최저가 등)은 이전 값을 유지한다.
+     * 들어온 객체는 write-behind 버퍼 등과 공유될 수 있어 직접 고치지 않는다.
+     */
+    public void updateAll(Collection<StockDTO> stocks) {
+        apply(stocks, true);
+    }
+
+    // live 가 false 면(재적재) 장중 기록과 분봉 집계에 넘기지 않는다
+    private synchronized void apply(Collection<StockDTO> stocks, boolean live) {
+        String[] changedCodes = new String[stocks.size()];
+        int i = 0;
+        for (StockDTO stockData : stocks) {
+            book.put(stockData);
+            changedCodes[i++] = stockData.getStockCode();
+            if (live) {
+                recordTick(stockData.getStockCode());
+            }
+        }
+        long next = version + 1;
+        // 변경 기록을 먼저 남기고 버전을 올려야 읽는 쪽이 새 버전의 기록을 항상 볼 수 있다
+        changeLog.set(slot(next), new ChangeEntry(next, changedCodes));
+        version = next;
+
+        List<StockDTO> merged = new ArrayList<>(changedCodes.length);
+        for (String stockCode : changedCodes) {
+            StockDTO stockData = book.get(stockCode);
+            latest.put(stockCode, stockData);
+            merged.add(stockData);
+        }
+        if (System.nanoTime() - lastPublishedNanos >= snapshotIntervalMs * 1_000_000L) {
+            publishSnapshot();
+        }
+        if (redisQuoteStore.isPrimary()) {
+            redisQuoteStore.mirror(merged);
+        }
+    }
+
+    /**
+     * since 버전 이후 바뀐 종목과 현재 버전
+     * since 가 변경 기록 범위를 벗어나면(너무 오래됐거나 서버 재시작 등으로 현재보다 크면) 전체 스냅샷
+     */
+    public StockChangesDTO getChangesSince(String sinceEpoch, long since) {
+        return epoch.equals(sinceEpoch) ? getChangesSince(since) : fullSnapshot();
+    }
+
+    // 같은 프로세스의 버전 (SSE 전송 스케줄러 등 내부용)
+    public StockChangesDTO getChangesSince(long since) {
+        long current = version;
+        if (since == current) {
+            return new StockChangesDTO(epoch, current, false, List.of());
+        }
+        if (since < 0 || since > current || current - since > changeLogSize) {
+            return fullSnapshot();
+        }
+
+        Set<String> changedCodes = new LinkedHashSet<>();
+        for (long v = since + 1; v <= current; v++) {
+            ChangeEntry entry = changeLog.get(slot(v));
+            if (entry == null || entry.version != v) {
+                // 읽는 도중 링이 한 바퀴 돌아 덮어써짐
+                return fullSnapshot();
+            }
+            Collections.addAll(changedCodes, entry.stockCodes);
+        }
+
+        List<StockDTO> changed = new ArrayList<>(changedCodes.size());
+        for (String stockCode : changedCodes) {
+            StockDTO stockData = book.get(stockCode);
+            if (stockData != null) {
+                changed.add(stockData);
+            }
+        }
+        return new StockChangesDTO(epoch, current, false, changed);
+    }
+
+    private StockChangesDTO fullSnapshot() {
+        Snapshot current = getSnapshot();
+        return new StockChangesDTO(epoch, current.version, true, current.getStockList());
+    }
+
+    private int slot(long version) {
+        return (int) (version % changeLogSize);
     }
 
     // 주식 데이터 조회
     public StockDTO getStockData(String stockCode) {
-        return stockCache.get(stockCode);
+        return book.get(stockCode);
     }
 
-    // 전체 주식 데이터 조회
+    // 전체 주식 데이터 조회 (읽기 전용)
     public Map<String, StockDTO> getAllStockData() {
-        return stockCache;
+        return getSnapshot().getStocks();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getEpoch() {
+        return epoch;
+    }
+
+    // 마지막으로 발행한 전 종목 스냅샷 (현재 버전보다 최대 snapshot-interval-ms 만큼 늦을 수 있다, 잠금 없음)
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // 발행 주기가 지나도록 쓰기가 없으면 남은 변경을 발행한다
+    @Scheduled(fixedDelayString = "${stock.cache.snapshot-interval-ms:200}")
+    public synchronized void publishPendingSnapshot() {
+        if (snapshot.version != version) {
+            publishSnapshot();
+        }
+    }
+
+    // 쓰기 잠금을 쥔 쪽만 호출
+    private void publishSnapshot() {
+        snapshot = new Snapshot(version, Collections.unmodifiableMap(new HashMap<>(latest)));
+        lastPublishedNanos = System.nanoTime();
+    }
+
+    // 방금 반영한 값으로 장중 기록 한 건 추가 (현재가가 없으면 건너뜀)
+    private void recordTick(String stockCode) {
+        int id = book.idOf(stockCode);
+        long price = book.getPriceFixedPoint(id);
+        if (price == QuoteBook.ABSENT) {
+            return;
+        }
+        long volume = book.getVolume(id);
+        long updatedAt = book.getUpdatedAtMillis(id);
+        tickBuffer.append(stockCode, updatedAt, price, volume != QuoteBook.ABSENT ? volume : 0L);
+        candleAggregator.onQuote(stockCode, updatedAt, price,
+                book.read(id, QuoteBook.OPEN), book.read(id, QuoteBook.HIGH), book.read(id, QuoteBook.LOW), volume);
+    }
+
+    private static final class ChangeEntry {
+        private final long version;
+        private final String[] stockCodes;
+
+        private ChangeEntry(long version, String[] stockCodes) {
+            this.version = version;
+            this.stockCodes = stockCodes;
+        }
+    }
+
+    /**
+     * 버전별 조회용 뷰
+     * 종목 맵은 발행할 때 그 버전의 값으로 채워지고 이후 바뀌지 않는다.
+     * 목록(최근 갱신 순)과 종목별 현재가 맵은 처음 요청될 때 종목 맵에서 한 번만 만든다.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final Map<String, StockDTO> stocks;
+        private volatile List<StockDTO> stockList;
+        private volatile Map<String, Double> prices;
+
+        private Snapshot(long version, Map<String, StockDTO> stocks) {
+            this.version = version;
+            this.stocks = stocks;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Map<String, StockDTO> getStocks() {
+            return stocks;
+        }
+
+        public List<StockDTO> getStockList() {
+            List<StockDTO> list = stockList;
+            if (list == null) {
+                List<StockDTO> sorted = new ArrayList<>(stocks.values());
+                sorted.sort(Comparator.comparing(StockDTO::getLastUpdated, Comparator.nullsLast(Comparator.reverseOrder())));
+                list = Collections.unmodifiableList(sorted);
+                stockList = list;
+            }
+            return list;
+        }
+
+        public Map<String, Double> getPrices() {
+            Map<String, Double> map = prices;
+            if (map == null) {
+                Map<String, Double> built = new HashMap<>(stocks.size() * 2);
+                for (StockDTO stockData : stocks.values()) {
+                    if (stockData.getCurrentPrice() != null) {
+                        built.put(stockData.getStockCode(), stockData.getCurrentPrice().doubleValue());
+                    }
+                }
+                map = Collections.unmodifiableMap(built);
+                prices = map;
+            }
+            return map;
+        }
     }
 }
@@ -0,0 +1,563 @@
+package com.kb.stock.cache;
+
+import com.kb.stock.dto.StockCandleDTO;
+import com.kb.stock.dto.StockCandleSummaryDTO;
+import com.kb.stock.mapper.StockCandleMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 종목별 일봉을 메모리 매핑 파일에 열(column) 단위로 들고 있는 로컬 저장소 (stock.candle.store.enabled)
+ * 차트 기간 조회를 MyBatis 행 매핑 대신 날짜 열 이진 탐색 + 버퍼 구간(CandleSlice)으로 처리한다.
+ *
+ * <pre>
+ * {code}.{generation}.candles := header(32 byte: magic, version, count, capacity)
+ *                   day[capacity] open[capacity] high[capacity] low[capacity] close[capacity]  (int)
+ *                   volume[capacity]                                                          (long)
+ * </pre>
+ * 날짜는 epoch day, 가격은 x100 고정소수점이고 날짜 오름차순이다.
+ *
+ * 종목을 처음 조회할 때(그리고 날짜가 바뀐 뒤 처음 조회할 때) DB 에서 마지막 봉 이후만 읽어 채우고,
+ * DB 의 건수/처음/마지막 거래일과 비교해 다르면(과거 일봉 추가/삭제) DB 전체 기간으로 다시 만든다.
+ * 건수가 같은 값 수정은 invalidate(관리 API)로 비운다.
+ * 장 마감 후 StockCandleAggregator 가 저장한 일봉은 append 로 바로 붙인다.
+ * 이미 공개한 행은 고치지 않는다: 뒤에 붙이는 것은 count 를 나중에 올려 공개하고,
+ * 기존 행을 바꾸거나 용량이 모자라면 다음 세대 파일을 새로 만들어 통째로 교체한다. 그래서 읽기는 잠금이 없다.
+ *
+ * 매핑된 파일은 덮어쓰거나 지우지 않는다 (Windows 는 매핑이 풀리기 전까지 거부하고, 읽는 쪽이 아직 이전 매핑을 들고 있을 수 있다).
+ * 밀려난 세대는 헤더의 magic 만 지워 다시 열리지 않게 하고, 바로 지우지 못하면 cleanup-interval-ms 마다 다시 지운다.
+ * 시작할 때 디렉터리를 훑어 종목별 최신 세대만 남긴다.
+ */
+@Component
+public class MappedCandleStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedCandleStore.class);
+
+    private static final int MAGIC = 0x4B424353; // "KBCS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int COUNT_OFFSET = 8;
+    private static final int CAPACITY_OFFSET = 12;
+    private static final int MIN_CAPACITY = 256;
+    private static final String SUFFIX = ".candles";
+    private static final Pattern FILE_NAME = Pattern.compile("([0-9A-Za-z]+)\\.(\\d{1,18})\\.candles");
+    private static final LocalDate HISTORY_START = LocalDate.of(1980, 1, 1);
+
+    // 열 번호 (int 열)
+    static final int DAY = 0;
+    static final int OPEN = 1;
+    static final int HIGH = 2;
+    static final int LOW = 3;
+    static final int CLOSE = 4;
+    private static final int INT_COLUMNS = 5;
+
+    @Autowired
+    private StockCandleMapper stockCandleMapper;
+
+    @Value("${stock.candle.store.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stock.candle.store.dir:data/candles}")
+    private String directory;
+
+    private Path root;
+    private final Map<String, CandleFile> files = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    private final Map<String, Long> diskGenerations = new ConcurrentHashMap<>(); // 종목별 디스크의 최신 세대
+    private final Set<Path> retired = ConcurrentHashMap.newKeySet();              // 아직 지우지 못한 이전 세대
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong rangeQueries = new AtomicLong();
+    private final AtomicLong databaseSyncs = new AtomicLong();
+    private final AtomicLong rewrites = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        root = Paths.get(directory).toAbsolutePath();
+        try {
+            Files.createDirectories(root);
+            scanDirectory();
+            deleteRetiredFiles();
+            logger.info("Mapped candle store at {} ({} symbols on disk)", root, diskGenerations.size());
+        } catch (IOException e) {
+            logger.error("Cannot create candle store directory {}, disabling store", root, e);
+            enabled = false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * [from, to] 기간의 일봉 (날짜 오름차순)
+     * 파일을 열거나 DB 와 맞추다 실패하면 null (호출하는 쪽은 DB 로 조회)
+     */
+    public CandleSlice range(String stockCode, LocalDate from, LocalDate to) {
+        CandleFile file;
+        try {
+            file = fileFor(stockCode);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Candle store unavailable for {}: {}", stockCode, e.getMessage());
+            return null;
+        }
+        rangeQueries.incrementAndGet();
+        int count = file.count;
+        int start = file.lowerBound((int) from.toEpochDay(), count);
+        int end = file.lowerBound((int) to.toEpochDay() + 1, count);
+        return start < end ? new CandleSlice(file.buffer, file.capacity, start, end) : CandleSlice.EMPTY;
+    }
+
+    /**
+     * 새로 저장한 일봉 반영 (StockCandleAggregator 장 마감 저장 후)
+     * 아직 열지 않은 종목은 다음 조회 때 DB 에서 읽으므로 건너뛴다.
+     */
+    public void append(List<StockCandleDTO> candles) {
+        if (!enabled) {
+            return;
+        }
+        for (StockCandleDTO candle : candles) {
+            String stockCode = candle.getStockCode();
+            if (!files.containsKey(stockCode)) {
+                continue;
+            }
+            synchronized (lockFor(stockCode)) {
+                CandleFile file = files.get(stockCode);
+                if (file == null) {
+                    continue;
+                }
+                try {
+                    Columns rows = new Columns(1);
+                    rows.add(candle);
+                    CandleFile merged = merge(stockCode, file, rows);
+                    files.put(stockCode, merged);
+                    if (merged != file) {
+                        retire(file);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    // 다음 조회 때 DB 에서 다시 맞춘다
+                    logger.warn("Error appending candle for {}: {}", stockCode, e.getMessage());
+                    files.remove(stockCode);
+                }
+            }
+        }
+    }
+
+    // 종목 파일을 지우고 다음 조회 때 DB 전체 기간에서 다시 만든다 (과거 일봉을 다시 적재한 경우)
+    public void invalidate(String stockCode) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lockFor(stockCode)) {
+            CandleFile file = files.remove(stockCode);
+            Long onDisk = diskGenerations.remove(stockCode);
+            if (file != null) {
+                retire(file);
+            }
+            if (onDisk != null) {
+                retire(pathOf(stockCode, onDisk));
+            }
+        }
+    }
+
+    // 모든 종목 파일 비우기 (열지 않은 종목의 디스크 파일 포함)
+    public void invalidateAll() {
+        if (!enabled) {
+            return;
+        }
+        Set<String> stockCodes = new HashSet<>(files.keySet());
+        stockCodes.addAll(diskGenerations.keySet());
+        stockCodes.forEach(this::invalidate);
+        logger.info("Candle store invalidated ({} symbols)", stockCodes.size());
+    }
+
+    public Map<String, Long> getMetrics() {
+        return Map.of(
+                "candleStoreSymbols", (long) files.size(),
+                "candleStoreRangeQueries", rangeQueries.get(),
+                "candleStoreDatabaseSyncs", databaseSyncs.get(),
+                "candleStoreRewrites", rewrites.get(),
+                "candleStoreRebuilds", rebuilds.get(),
+                "candleStoreRetiredFiles", (long) retired.size());
+    }
+
+    // 밀려난 세대 파일 다시 지우기 (매핑이 GC 로 풀려야 지워지는 Windows 용)
+    @Scheduled(fixedDelayString = "${stock.candle.store.cleanup-interval-ms:60000}")
+    public void deleteRetiredFiles() {
+        for (Iterator<Path> it = retired.iterator(); it.hasNext(); ) {
+            Path path = it.next();
+            try {
+                Files.deleteIfExists(path);
+                it.remove();
+            } catch (IOException e) {
+                logger.debug("Candle file {} still in use: {}", path, e.getMessage());
+            }
+        }
+    }
+
+    // 오늘 DB 와 맞춘 파일 (처음이면 디스크의 파일을 열거나 새로 만든다)
+    private CandleFile fileFor(String stockCode) throws IOException {
+        LocalDate today = LocalDate.now();
+        CandleFile file = files.get(stockCode);
+        if (file != null && today.equals(file.syncedOn)) {
+            return file;
+        }
+        synchronized (lockFor(stockCode)) {
+            file = files.get(stockCode);
+            if (file != null && today.equals(file.syncedOn)) {
+                return file;
+            }
+            if (file == null) {
+                file = openFromDisk(stockCode);
+            }
+            LocalDate since = file != null && file.count > 0
+                    ? LocalDate.ofEpochDay(file.epochDay(file.count - 1) + 1L)
+                    : HISTORY_START;
+            List<StockCandleDTO> rows = stockCandleMapper.getStockData(stockCode, since, today);
+            databaseSyncs.incrementAndGet();
+
+            Columns columns = new Columns(rows.size());
+            rows.forEach(columns::add);
+            CandleFile synced = file == null ? write(stockCode, columns) : merge(stockCode, file, columns);
+            if (file != null && synced != file) {
+                retire(file);
+            }
+            if (!since.equals(HISTORY_START) && !matchesDatabase(stockCode, synced, today)) {
+                // 마지막 봉 이전 구간이 DB 와 다르다 (과거 일봉 재적재 등)
+                logger.info("Candle file for {} differs from database, rebuilding", stockCode);
+                List<StockCandleDTO> all = stockCandleMapper.getStockData(stockCode, HISTORY_START, today);
+                Columns rebuilt = new Columns(all.size());
+                all.forEach(rebuilt::add);
+                CandleFile previous = synced;
+                synced = write(stockCode, rebuilt);
+                retire(previous);
+                rebuilds.incrementAndGet();
+            }
+            synced.syncedOn = today;
+            files.put(stockCode, synced);
+            return synced;
+        }
+    }
+
+    private boolean matchesDatabase(String stockCode, CandleFile file, LocalDate today) {
+        StockCandleSummaryDTO summary = stockCandleMapper.getCandleSummary(stockCode, today);
+        int count = file.count;
+        if (summary == null || summary.getCandleCount() == 0) {
+            return count == 0;
+        }
+        return count == summary.getCandleCount()
+                && file.epochDay(0) == LocalDate.parse(summary.getFirstDay()).toEpochDay()
+                && file.epochDay(count - 1) == LocalDate.parse(summary.getLastDay()).toEpochDay();
+    }
+
+    /**
+     * 기존 파일 뒤에 봉 붙이기
+     * 새 봉이 모두 마지막 날짜보다 뒤이고 용량이 남으면 제자리에 쓰고 count 를 올린다.
+     * 아니면(같은 날짜 갱신, 용량 초과) 합쳐서 새 파일로 교체한다.
+     */
+    private CandleFile merge(String stockCode, CandleFile file, Columns rows) throws IOException {
+        if (rows.size == 0) {
+            return file;
+        }
+        int count = file.count;
+        boolean appendOnly = count == 0 || rows.days[0] > file.epochDay(count - 1);
+        if (appendOnly && count + rows.size <= file.capacity) {
+            file.append(rows);
+            return file;
+        }
+
+        // 날짜별로 새 값이 우선
+        TreeMap<Integer, Integer> byDay = new TreeMap<>();
+        Columns existing = file.read();
+        for (int i = 0; i < existing.size; i++) {
+            byDay.put(existing.days[i], i);
+        }
+        for (int i = 0; i < rows.size; i++) {
+            byDay.put(rows.days[i], -1 - i);
+        }
+        Columns merged = new Columns(byDay.size());
+        for (int index : byDay.values()) {
+            if (index >= 0) {
+                merged.copy(existing, index);
+            } else {
+                merged.copy(rows, -1 - index);
+            }
+        }
+        rewrites.incrementAndGet();
+        CandleFile rewritten = write(stockCode, merged);
+        rewritten.syncedOn = file.syncedOn;
+        return rewritten;
+    }
+
+    /**
+     * 다음 세대 파일을 새 이름으로 만든다 (이전 세대는 호출하는 쪽이 retire)
+     * magic 은 모두 쓰고 force 한 뒤에 기록하므로 쓰다 멈춘 파일은 열 때 버려진다.
+     */
+    private CandleFile write(String stockCode, Columns rows) throws IOException {
+        int capacity = MIN_CAPACITY;
+        while (capacity < rows.size + MIN_CAPACITY) {
+            capacity <<= 1;
+        }
+        long next = generation.incrementAndGet();
+        Path path = pathOf(stockCode, next);
+        try {
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+            }
+            buffer.putInt(4, VERSION);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            CandleFile file = new CandleFile(path, buffer, capacity, 0);
+            file.append(rows);
+            buffer.force();
+            buffer.putInt(0, MAGIC);
+            buffer.force();
+            diskGenerations.put(stockCode, next);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            retire(path);
+            throw e;
+        }
+    }
+
+    // 디스크의 최신 세대 열기 (없거나 형식이 다르면 null)
+    private CandleFile openFromDisk(String stockCode) throws IOException {
+        Long onDisk = diskGenerations.get(stockCode);
+        if (onDisk == null) {
+            return null;
+        }
+        Path path = pathOf(stockCode, onDisk);
+        CandleFile file = CandleFile.open(path);
+        if (file == null) {
+            diskGenerations.remove(stockCode, onDisk);
+            retire(path);
+        }
+        return file;
+    }
+
+    // 밀려난 세대: 다시 열리지 않게 표시하고 지워 본다 (읽는 쪽은 이전 매핑을 그대로 읽는다)
+    private void retire(CandleFile file) {
+        file.buffer.putInt(0, 0);
+        retire(file.path);
+    }
+
+    private void retire(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            retired.add(path);
+        }
+    }
+
+    // 종목별 최신 세대만 기억하고 나머지(이전 세대, 형식이 다른 파일)는 지울 목록에 넣는다
+    private void scanDirectory() throws IOException {
+        try (Stream<Path> paths = Files.list(root)) {
+            paths.forEach(path -> {
+                String name = path.getFileName().toString();
+                Matcher matcher = FILE_NAME.matcher(name);
+                if (!matcher.matches()) {
+                    if (name.endsWith(SUFFIX) || name.endsWith(SUFFIX + ".tmp")) {
+                        retired.add(path);
+                    }
+                    return;
+                }
+                String stockCode = matcher.group(1);
+                long fileGeneration = Long.parseLong(matcher.group(2));
+                generation.accumulateAndGet(fileGeneration, Math::max);
+                Long newest = diskGenerations.get(stockCode);
+                if (newest == null || fileGeneration > newest) {
+                    diskGenerations.put(stockCode, fileGeneration);
+                    if (newest != null) {
+                        retired.add(pathOf(stockCode, newest));
+                    }
+                } else {
+                    retired.add(path);
+                }
+            });
+        }
+    }
+
+    private Object lockFor(String stockCode) {
+        return locks.computeIfAbsent(stockCode, key -> new Object());
+    }
+
+    private Path pathOf(String stockCode, long fileGeneration) {
+        if (!stockCode.matches("[0-9A-Za-z]+")) {
+            throw new IllegalArgumentException("Invalid stock code: " + stockCode);
+        }
+        return root.resolve(stockCode + "." + fileGeneration + SUFFIX);
+    }
+
+    static int intColumnOffset(int column, int capacity) {
+        return HEADER_BYTES + column * capacity * Integer.BYTES;
+    }
+
+    static int volumeOffset(int capacity) {
+        return HEADER_BYTES + INT_COLUMNS * capacity * Integer.BYTES;
+    }
+
+    private static long fileSize(int capacity) {
+        return volumeOffset(capacity) + (long) capacity * Long.BYTES;
+    }
+
+    // 매핑된 종목 파일 하나
+    private static final class CandleFile {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private volatile int count; // 여기까지만 읽는 쪽에 공개
+        private volatile LocalDate syncedOn;
+
+        private CandleFile(Path path, MappedByteBuffer buffer, int capacity, int count) {
+            this.path = path;
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.count = count;
+        }
+
+        // 디스크의 파일 열기 (없거나 형식이 다르면 null)
+        private static CandleFile open(Path path) throws IOException {
+            if (!Files.exists(path)) {
+                return null;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                long size = channel.size();
+                if (size < HEADER_BYTES) {
+                    return null;
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                int capacity = buffer.getInt(CAPACITY_OFFSET);
+                int count = buffer.getInt(COUNT_OFFSET);
+                if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || capacity <= 0
+                        || size != fileSize(capacity) || count < 0 || count > capacity) {
+                    logger.warn("Ignoring malformed candle file {}", path);
+                    return null;
+                }
+                return new CandleFile(path, buffer, capacity, count);
+            }
+        }
+
+        private int epochDay(int row) {
+            return buffer.getInt(intColumnOffset(DAY, capacity) + row * Integer.BYTES);
+        }
+
+        // day 이상인 첫 행 번호
+        private int lowerBound(int day, int count) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (epochDay(mid) < day) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        // 쓰기 잠금을 쥔 쪽만 호출 (빈 칸에 쓰고 count 를 올려 공개)
+        private void append(Columns rows) {
+            int start = count;
+            for (int i = 0; i < rows.size; i++) {
+                int row = start + i;
+                putInt(DAY, row, rows.days[i]);
+                putInt(OPEN, row, rows.opens[i]);
+                putInt(HIGH, row, rows.highs[i]);
+                putInt(LOW, row, rows.lows[i]);
+                putInt(CLOSE, row, rows.closes[i]);
+                buffer.putLong(volumeOffset(capacity) + row * Long.BYTES, rows.volumes[i]);
+            }
+            buffer.putInt(COUNT_OFFSET, start + rows.size);
+            count = start + rows.size;
+        }
+
+        private Columns read() {
+            int size = count;
+            Columns rows = new Columns(size);
+            for (int row = 0; row < size; row++) {
+                rows.days[row] = buffer.getInt(intColumnOffset(DAY, capacity) + row * Integer.BYTES);
+                rows.opens[row] = buffer.getInt(intColumnOffset(OPEN, capacity) + row * Integer.BYTES);
+                rows.highs[row] = buffer.getInt(intColumnOffset(HIGH, capacity) + row * Integer.BYTES);
+                rows.lows[row] = buffer.getInt(intColumnOffset(LOW, capacity) + row * Integer.BYTES);
+                rows.closes[row] = buffer.getInt(intColumnOffset(CLOSE, capacity) + row * Integer.BYTES);
+                rows.volumes[row] = buffer.getLong(volumeOffset(capacity) + row * Long.BYTES);
+            }
+            rows.size = size;
+            return rows;
+        }
+
+        private void putInt(int column, int row, int value) {
+            buffer.putInt(intColumnOffset(column, capacity) + row * Integer.BYTES, value);
+        }
+    }
+
+    // 파일에 쓰기 전 봉 묶음 (날짜 오름차순)
+    private static final class Columns {
+        private final int[] days;
+        private final int[] opens;
+        private final int[] highs;
+        private final int[] lows;
+        private final int[] closes;
+        private final long[] volumes;
+        private int size;
+
+        private Columns(int capacity) {
+            days = new int[capacity];
+            opens = new int[capacity];
+            highs = new int[capacity];
+            lows = new int[capacity];
+            closes = new int[capacity];
+            volumes = new long[capacity];
+        }
+
+        private void add(StockCandleDTO candle) {
+            days[size] = Math.toIntExact(LocalDate.parse(candle.getStockCandleDay()).toEpochDay());
+            opens[size] = fixedPoint(candle.getStockCandleOpen());
+            highs[size] = fixedPoint(candle.getStockCandleHigh());
+            lows[size] = fixedPoint(candle.getStockCandleLow());
+            closes[size] = fixedPoint(candle.getStockCandleClose());
+            volumes[size] = candle.getStockCandleVolume();
+            size++;
+        }
+
+        private void copy(Columns source, int index) {
+            days[size] = source.days[index];
+            opens[size] = source.opens[index];
+            highs[size] = source.highs[index];
+            lows[size] = source.lows[index];
+            closes[size] = source.closes[index];
+            volumes[size] = source.volumes[index];
+            size++;
+        }
+
+        private static int fixedPoint(float price) {
+            return Math.toIntExact(Math.round(price * 100.0));
+        }
+    }
+}
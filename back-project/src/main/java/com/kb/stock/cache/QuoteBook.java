@@ -0,0 +1,339 @@
+package com.kb.stock.cache;
+
+import com.kb.stock.dto.StockDTO;
+
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 전 종목 시세를 원시 타입 배열로 들고 있는 시세판
+ * 종목마다 번호(symbol id)를 매기고 필드별 long 배열의 같은 칸에 값을 둔다.
+ * 가격류는 x100 고정소수점, 값이 없으면 ABSENT. StockDTO 는 읽을 때(API 경계)만 만든다.
+ *
+ * 쓰기는 한 번에 한 스레드(InMemoryStockCache.updateAll 이 직렬화)만 한다.
+ * 읽기는 잠금 없이 종목별 시퀀스 번호(seqlock)로 쓰는 도중의 값을 걸러 내고 다시 읽는다.
+ */
+public final class QuoteBook {
+
+    public static final long ABSENT = Long.MIN_VALUE;
+
+    // 필드 번호 (columns 의 첫 번째 인덱스)
+    static final int PRICE = 0;
+    static final int CHANGE = 1;
+    static final int CHANGE_PCT = 2;
+    static final int OPEN = 3;
+    static final int HIGH = 4;
+    static final int LOW = 5;
+    static final int MARKET_CAP = 6;
+    static final int W52_HIGH = 7;
+    static final int W52_LOW = 8;
+    static final int TRADE_VALUE = 9;
+    static final int VOLUME = 10;
+    static final int UPDATED_AT = 11; // epoch millis
+    static final int DB_ID = 12;
+    static final int FIELD_COUNT = 13;
+
+    private static final BigDecimal FIXED_POINT_SCALE = BigDecimal.valueOf(100);
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile Storage storage;
+    private volatile int size;
+
+    public QuoteBook(int initialCapacity) {
+        storage = new Storage(Math.max(16, initialCapacity));
+    }
+
+    /**
+     * 배열 묶음 (용량이 모자라면 통째로 복사해 교체)
+     * 교체 전 배열을 읽던 쪽은 잠깐 이전 값을 볼 수 있지만 종목 하나의 값이 섞이지는 않는다.
+     */
+    private static final class Storage {
+        private final String[] codes;
+        private final long[][] columns;
+        private final String[] names;
+        private final String[] industries;
+        private final String[] categories;
+        private final AtomicLongArray sequences;
+
+        private Storage(int capacity) {
+            codes = new String[capacity];
+            columns = new long[FIELD_COUNT][capacity];
+            for (long[] column : columns) {
+                Arrays.fill(column, ABSENT);
+            }
+            names = new String[capacity];
+            industries = new String[capacity];
+            categories = new String[capacity];
+            sequences = new AtomicLongArray(capacity);
+        }
+
+        private Storage grow(int capacity) {
+            Storage grown = new Storage(capacity);
+            int length = codes.length;
+            System.arraycopy(codes, 0, grown.codes, 0, length);
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                System.arraycopy(columns[field], 0, grown.columns[field], 0, length);
+            }
+            System.arraycopy(names, 0, grown.names, 0, length);
+            System.arraycopy(industries, 0, grown.industries, 0, length);
+            System.arraycopy(categories, 0, grown.categories, 0, length);
+            for (int i = 0; i < length; i++) {
+                grown.sequences.set(i, sequences.get(i));
+            }
+            return grown;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(String stockCode) {
+        return ids.containsKey(stockCode);
+    }
+
+    /**
+     * 시세 반영 (쓰기 스레드 하나에서만 호출)
+     * 새 시세에 없는 기준 정보(DB id, 종목명, 업종, 투자 성향, 시가총액, 52주 최고/최저가)는 이전 값을 유지한다.
+     */
+    public void put(StockDTO stockData) {
+        int id = idFor(stockData.getStockCode());
+        Storage s = storage;
+        long[][] c = s.columns;
+
+        long sequence = s.sequences.get(id) + 1;
+        s.sequences.setRelease(id, sequence); // 홀수: 쓰는 중
+        VarHandle.storeStoreFence();
+
+        c[PRICE][id] = fixedPoint(stockData.getCurrentPrice());
+        c[CHANGE][id] = fixedPoint(stockData.getPriceChange());
+        c[CHANGE_PCT][id] = fixedPoint(stockData.getPriceChangePct());
+        c[OPEN][id] = fixedPoint(stockData.getOpeningPrice());
+        c[HIGH][id] = fixedPoint(stockData.getHighPrice());
+        c[LOW][id] = fixedPoint(stockData.getLowPrice());
+        c[TRADE_VALUE][id] = fixedPoint(stockData.getAcmlTrPbmn());
+        c[VOLUME][id] = stockData.getVolume() != null ? stockData.getVolume() : ABSENT;
+        c[UPDATED_AT][id] = stockData.getLastUpdated() != null
+                ? stockData.getLastUpdated().atZone(ZONE).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+        keepIfAbsent(c[MARKET_CAP], id, fixedPoint(stockData.getHtsAvls()));
+        keepIfAbsent(c[W52_HIGH], id, fixedPoint(stockData.getW52Hgpr()));
+        keepIfAbsent(c[W52_LOW], id, fixedPoint(stockData.getW52Lwpr()));
+        keepIfAbsent(c[DB_ID], id, stockData.getId() != null ? stockData.getId() : ABSENT);
+        if (!isBlank(stockData.getStockName())) {
+            s.names[id] = stockData.getStockName();
+        }
+        if (!isBlank(stockData.getIndustry())) {
+            s.industries[id] = stockData.getIndustry();
+        }
+        if (stockData.getInvestmentCategory() != null) {
+            s.categories[id] = stockData.getInvestmentCategory();
+        }
+
+        s.sequences.setRelease(id, sequence + 1); // 짝수: 완료
+    }
+
+    /**
+     * DB 행이 캐시 값보다 나중에 저장됐는지 (캐시에 없으면 true, 행 시각이 없으면 false)
+     * put 과 같은 시간대(ZONE)로 바꿔 비교한다. DB 의 NOW() 는 서버와 같은 시간대로 맞춰 둔다.
+     */
+    boolean isOlderThan(StockDTO row) {
+        int id = idOf(row.getStockCode());
+        if (id < 0) {
+            return true;
+        }
+        if (row.getLastUpdated() == null) {
+            return false;
+        }
+        return row.getLastUpdated().atZone(ZONE).toInstant().toEpochMilli() > read(id, UPDATED_AT);
+    }
+
+    /**
+     * 반영해도 값이 그대로인지 (시각은 보지 않는다, 없는 종목이면 false)
+     * 시세 필드는 모두, 기준 정보는 put 이 덮어쓰는 경우(값이 있을 때)만 비교한다.
+     */
+    boolean hasSameContent(StockDTO stockData) {
+        int id = idOf(stockData.getStockCode());
+        if (id < 0) {
+            return false;
+        }
+        long volume = stockData.getVolume() != null ? stockData.getVolume() : ABSENT;
+        return read(id, PRICE) == fixedPoint(stockData.getCurrentPrice())
+                && read(id, CHANGE) == fixedPoint(stockData.getPriceChange())
+                && read(id, CHANGE_PCT) == fixedPoint(stockData.getPriceChangePct())
+                && read(id, OPEN) == fixedPoint(stockData.getOpeningPrice())
+                && read(id, HIGH) == fixedPoint(stockData.getHighPrice())
+                && read(id, LOW) == fixedPoint(stockData.getLowPrice())
+                && read(id, TRADE_VALUE) == fixedPoint(stockData.getAcmlTrPbmn())
+                && read(id, VOLUME) == volume
+                && sameIfPresent(read(id, MARKET_CAP), fixedPoint(stockData.getHtsAvls()))
+                && sameIfPresent(read(id, W52_HIGH), fixedPoint(stockData.getW52Hgpr()))
+                && sameIfPresent(read(id, W52_LOW), fixedPoint(stockData.getW52Lwpr()))
+                && sameIfPresent(read(id, DB_ID), stockData.getId() != null ? stockData.getId() : ABSENT)
+                && (isBlank(stockData.getStockName()) || stockData.getStockName().equals(storage.names[id]))
+                && (isBlank(stockData.getIndustry()) || stockData.getIndustry().equals(storage.industries[id]))
+                && (stockData.getInvestmentCategory() == null || stockData.getInvestmentCategory().equals(storage.categories[id]));
+    }
+
+    // 종목의 현재 시세 (없으면 null)
+    public StockDTO get(String stockCode) {
+        Integer id = ids.get(stockCode);
+        return id != null ? toDto(id) : null;
+    }
+
+    // 종목 번호의 현재 시세 (0 <= id < size())
+    public StockDTO toDto(int id) {
+        long[] values = new long[FIELD_COUNT];
+        while (true) {
+            Storage s = storage;
+            long before = s.sequences.getAcquire(id);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                values[field] = s.columns[field][id];
+            }
+            String name = s.names[id];
+            String industry = s.industries[id];
+            String category = s.categories[id];
+            VarHandle.loadLoadFence();
+            if (s.sequences.get(id) == before) {
+                return toDto(s.codes[id], values, name, industry, category);
+            }
+        }
+    }
+
+    // 현재가 (x100 고정소수점, 없으면 ABSENT)
+    public long getPriceFixedPoint(int id) {
+        return read(id, PRICE);
+    }
+
+    // 마지막 갱신 시각 (epoch millis, 없으면 ABSENT)
+    public long getUpdatedAtMillis(String stockCode) {
+        Integer id = ids.get(stockCode);
+        return id != null ? read(id, UPDATED_AT) : ABSENT;
+    }
+
+    // 종목 번호 (없으면 -1)
+    int idOf(String stockCode) {
+        Integer id = ids.get(stockCode);
+        return id != null ? id : -1;
+    }
+
+    long getVolume(int id) {
+        return read(id, VOLUME);
+    }
+
+    long getUpdatedAtMillis(int id) {
+        return read(id, UPDATED_AT);
+    }
+
+    public String getCode(int id) {
+        return storage.codes[id];
+    }
+
+    public static double toDouble(long fixedPoint) {
+        return fixedPoint / 100.0;
+    }
+
+    long read(int id, int field) {
+        while (true) {
+            Storage s = storage;
+            long before = s.sequences.getAcquire(id);
+            long value = s.columns[field][id];
+            VarHandle.loadLoadFence();
+            if ((before & 1) == 0 && s.sequences.get(id) == before) {
+                return value;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private int idFor(String stockCode) {
+        Integer id = ids.get(stockCode);
+        if (id != null) {
+            return id;
+        }
+        int next = size;
+        Storage s = storage;
+        if (next == s.codes.length) {
+            s = s.grow(s.codes.length * 2);
+            storage = s;
+        }
+        s.codes[next] = stockCode;
+        // 번호를 공개하기 전에 코드가 채워져 있어야 한다 (size, ids 모두 이후에 갱신)
+        size = next + 1;
+        ids.put(stockCode, next);
+        return next;
+    }
+
+    private static StockDTO toDto(String stockCode, long[] values, String name, String industry, String category) {
+        StockDTO stockData = new StockDTO();
+        stockData.setStockCode(stockCode);
+        stockData.setStockName(name);
+        stockData.setIndustry(industry);
+        stockData.setInvestmentCategory(category);
+        stockData.setCurrentPrice(decimal(values[PRICE]));
+        stockData.setPriceChange(decimal(values[CHANGE]));
+        stockData.setPriceChangePct(decimal(values[CHANGE_PCT]));
+        stockData.setOpeningPrice(decimal(values[OPEN]));
+        stockData.setHighPrice(decimal(values[HIGH]));
+        stockData.setLowPrice(decimal(values[LOW]));
+        stockData.setHtsAvls(decimal(values[MARKET_CAP]));
+        stockData.setW52Hgpr(decimal(values[W52_HIGH]));
+        stockData.setW52Lwpr(decimal(values[W52_LOW]));
+        stockData.setAcmlTrPbmn(decimal(values[TRADE_VALUE]));
+        stockData.setVolume(values[VOLUME] != ABSENT ? values[VOLUME] : null);
+        stockData.setId(values[DB_ID] != ABSENT ? values[DB_ID] : null);
+        if (values[UPDATED_AT] != ABSENT) {
+            stockData.setLastUpdated(LocalDateTime.ofInstant(Instant.ofEpochMilli(values[UPDATED_AT]), ZONE));
+        }
+        return stockData;
+    }
+
+    private static boolean sameIfPresent(long current, long value) {
+        return value == ABSENT || value == current;
+    }
+
+    private static void keepIfAbsent(long[] column, int id, long value) {
+        if (value != ABSENT) {
+            column[id] = value;
+        }
+    }
+
+    private static long fixedPoint(BigDecimal value) {
+        if (value == null) {
+            return ABSENT;
+        }
+        // 원 단위 정수 가격은 BigDecimal 연산(할당) 없이 바로 변환
+        if (value.scale() == 0 && value.precision() < 17) {
+            return value.longValue() * 100;
+        }
+        return value.multiply(FIXED_POINT_SCALE).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    // 정수면 scale 0 으로 (DB/KIS 값과 같은 모양)
+    private static BigDecimal decimal(long fixedPoint) {
+        if (fixedPoint == ABSENT) {
+            return null;
+        }
+        if (fixedPoint % 100 == 0) {
+            return BigDecimal.valueOf(fixedPoint / 100);
+        }
+        return BigDecimal.valueOf(fixedPoint, 2);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isEmpty();
+    }
+}
@@ -0,0 +1,331 @@
+package com.kb.stock.cache;
+
+import com.kb.stock.dto.StockDTO;
+import com.kb.stock.handler.StockBroadcastConflator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis 공유 시세 스냅샷 (노드 간 L2)
+ * 종목마다 stock:quote:{종목코드} 해시 하나에 짧은 필드명으로 최신 시세를 둔다.
+ * - primary: 시세를 수집하는 노드. 캐시에 들어간 시세를 모아 두었다가 flush-interval-ms 마다 파이프라인으로 쓴다.
+ * - replica: KIS/MySQL 없이 시세만 제공하는 노드. InMemoryStockCache 를 near-cache 로 쓰고
+ *   keyspace notification 으로 바뀐 종목만 다시 읽어 채운다. 알림은 유실될 수 있어
+ *   캐시 재적재 주기마다 전체를 다시 읽는다. 알림으로 다시 읽은 시세는 이 노드의 WebSocket/STOMP 구독자에게도 보낸다.
+ *   이 노드의 구독 종목은 RedisSubscriptionSync 가 primary 에 알린다.
+ * - off: Redis 를 쓰지 않음 (기본값)
+ */
+@Component
+public class RedisQuoteStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisQuoteStore.class);
+
+    public static final String MODE_OFF = "off";
+    public static final String MODE_PRIMARY = "primary";
+    public static final String MODE_REPLICA = "replica";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisConnectionFactory connectionFactory;
+
+    @Value("${stock.redis.mode:off}")
+    private String mode;
+
+    @Value("${stock.redis.key-prefix:stock:quote:}")
+    private String keyPrefix;
+
+    @Value("${redis.database:0}")
+    private int database;
+
+    // 서버의 notify-keyspace-events 에 해시 알림(Kh)을 켤지 (관리형 Redis 처럼 CONFIG 가 막혀 있으면 false)
+    @Value("${stock.redis.configure-notifications:true}")
+    private boolean configureNotifications;
+
+    private InMemoryStockCache stockCache;
+    private StockBroadcastConflator broadcastConflator;
+    private RedisMessageListenerContainer listenerContainer;
+
+    private final Map<String, StockDTO> pendingWrites = new ConcurrentHashMap<>(); // primary: 종목 → 쓸 시세
+    private final Set<String> dirtyCodes = ConcurrentHashMap.newKeySet();         // replica: 알림 받은 종목
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong notified = new AtomicLong();
+    private final AtomicLong refreshed = new AtomicLong();
+
+    @Autowired
+    @Lazy
+    public void setStockCache(InMemoryStockCache stockCache) {
+        this.stockCache = stockCache;
+    }
+
+    @Autowired
+    @Lazy
+    public void setBroadcastConflator(StockBroadcastConflator broadcastConflator) {
+        this.broadcastConflator = broadcastConflator;
+    }
+
+    @PostConstruct
+    public void init() {
+        mode = mode.trim().toLowerCase(Locale.ROOT);
+        if (isReplica()) {
+            startListening();
+        }
+        logger.info("Redis quote store mode: {}", mode);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (listenerContainer != null) {
+            try {
+                listenerContainer.destroy();
+            } catch (Exception e) {
+                logger.warn("Error stopping Redis listener container: {}", e.getMessage());
+            }
+        }
+    }
+
+    public boolean isPrimary() {
+        return MODE_PRIMARY.equals(mode);
+    }
+
+    public boolean isReplica() {
+        return MODE_REPLICA.equals(mode);
+    }
+
+    // primary: 캐시에 반영된 시세를 다음 flush 때 Redis 에 쓴다 (같은 종목은 최신 것만)
+    public void mirror(Collection<StockDTO> stocks) {
+        if (!isPrimary()) {
+            return;
+        }
+        for (StockDTO stockData : stocks) {
+            pendingWrites.put(stockData.getStockCode(), stockData);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stock.redis.flush-interval-ms:200}")
+    public void flush() {
+        if (isPrimary()) {
+            writePending();
+        } else if (isReplica()) {
+            refreshDirty();
+        }
+    }
+
+    // replica: 전체 종목을 SCAN 으로 찾아 읽는다
+    public List<StockDTO> loadAll() {
+        List<String> keys = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match(keyPrefix + "*").count(1000).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            cursor.forEachRemaining(keys::add);
+        }
+        List<String> stockCodes = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            stockCodes.add(key.substring(keyPrefix.length()));
+        }
+        return read(stockCodes);
+    }
+
+    public Map<String, Long> getMetrics() {
+        return Map.of(
+                "redisWritten", written.get(),
+                "redisNotified", notified.get(),
+                "redisRefreshed", refreshed.get());
+    }
+
+    private void writePending() {
+        if (pendingWrites.isEmpty()) {
+            return;
+        }
+        List<StockDTO> batch = new ArrayList<>(pendingWrites.size());
+        for (String stockCode : pendingWrites.keySet()) {
+            StockDTO stockData = pendingWrites.remove(stockCode);
+            if (stockData != null) {
+                batch.add(stockData);
+            }
+        }
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (StockDTO stockData : batch) {
+                    stringConnection.hMSet(keyPrefix + stockData.getStockCode(), encode(stockData));
+                }
+                return null;
+            });
+            written.addAndGet(batch.size());
+        } catch (Exception e) {
+            // 다음 flush 때 다시 쓴다 (그 사이 더 새 시세가 들어왔으면 그것을 유지)
+            batch.forEach(stockData -> pendingWrites.putIfAbsent(stockData.getStockCode(), stockData));
+            logger.error("Error writing {} quotes to Redis: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private void refreshDirty() {
+        if (dirtyCodes.isEmpty()) {
+            return;
+        }
+        List<String> stockCodes = new ArrayList<>(dirtyCodes);
+        dirtyCodes.removeAll(stockCodes);
+        try {
+            List<StockDTO> stocks = read(stockCodes);
+            if (!stocks.isEmpty()) {
+                stockCache.updateAll(stocks);
+                refreshed.addAndGet(stocks.size());
+                stocks.forEach(broadcastConflator::publish);
+            }
+        } catch (Exception e) {
+            dirtyCodes.addAll(stockCodes);
+            logger.error("Error refreshing {} quotes from Redis: {}", stockCodes.size(), e.getMessage());
+        }
+    }
+
+    private List<StockDTO> read(List<String> stockCodes) {
+        List<Object> hashes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (String stockCode : stockCodes) {
+                stringConnection.hGetAll(keyPrefix + stockCode);
+            }
+            return null;
+        });
+        List<StockDTO> stocks = new ArrayList<>(stockCodes.size());
+        for (int i = 0; i < stockCodes.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> hash = (Map<String, String>) hashes.get(i);
+            if (hash != null && !hash.isEmpty()) {
+                stocks.add(decode(stockCodes.get(i), hash));
+            }
+        }
+        return stocks;
+    }
+
+    private void startListening() {
+        if (configureNotifications) {
+            enableKeyspaceNotifications();
+        }
+        String pattern = "__keyspace@" + database + "__:" + keyPrefix + "*";
+        int channelPrefixLength = pattern.length() - 1;
+        listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.addMessageListener((message, patternBytes) -> {
+            String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+            if (channel.length() > channelPrefixLength) {
+                notified.incrementAndGet();
+                dirtyCodes.add(channel.substring(channelPrefixLength));
+            }
+        }, new PatternTopic(pattern));
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    // 기존 설정을 유지한 채 K(keyspace)와 h(hash) 플래그만 더한다
+    private void enableKeyspaceNotifications() {
+        try {
+            redisTemplate.execute((RedisCallback<Object>) connection -> {
+                Properties config = connection.serverCommands().getConfig("notify-keyspace-events");
+                String flags = config != null ? config.getProperty("notify-keyspace-events", "") : "";
+                StringBuilder updated = new StringBuilder(flags);
+                if (flags.indexOf('K') < 0) {
+                    updated.append('K');
+                }
+                if (flags.indexOf('h') < 0 && flags.indexOf('A') < 0) {
+                    updated.append('h');
+                }
+                if (!updated.toString().equals(flags)) {
+                    connection.serverCommands().setConfig("notify-keyspace-events", updated.toString());
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            logger.warn("Could not enable Redis keyspace notifications (set notify-keyspace-events Kh on the server): {}", e.getMessage());
+        }
+    }
+
+    private Map<String, String> encode(StockDTO stockData) {
+        Map<String, String> hash = new HashMap<>(32);
+        put(hash, "id", stockData.getId());
+        put(hash, "n", stockData.getStockName());
+        put(hash, "p", stockData.getCurrentPrice());
+        put(hash, "d", stockData.getPriceChange());
+        put(hash, "r", stockData.getPriceChangePct());
+        put(hash, "h", stockData.getHighPrice());
+        put(hash, "l", stockData.getLowPrice());
+        put(hash, "o", stockData.getOpeningPrice());
+        put(hash, "v", stockData.getVolume());
+        put(hash, "a", stockData.getAcmlTrPbmn());
+        put(hash, "i", stockData.getIndustry());
+        put(hash, "m", stockData.getHtsAvls());
+        put(hash, "wh", stockData.getW52Hgpr());
+        put(hash, "wl", stockData.getW52Lwpr());
+        put(hash, "c", stockData.getInvestmentCategory());
+        if (stockData.getLastUpdated() != null) {
+            hash.put("t", Long.toString(stockData.getLastUpdated().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()));
+        }
+        return hash;
+    }
+
+    private StockDTO decode(String stockCode, Map<String, String> hash) {
+        StockDTO stockData = new StockDTO();
+        stockData.setStockCode(stockCode);
+        stockData.setId(toLong(hash.get("id")));
+        stockData.setStockName(hash.get("n"));
+        stockData.setCurrentPrice(toDecimal(hash.get("p")));
+        stockData.setPriceChange(toDecimal(hash.get("d")));
+        stockData.setPriceChangePct(toDecimal(hash.get("r")));
+        stockData.setHighPrice(toDecimal(hash.get("h")));
+        stockData.setLowPrice(toDecimal(hash.get("l")));
+        stockData.setOpeningPrice(toDecimal(hash.get("o")));
+        stockData.setVolume(toLong(hash.get("v")));
+        stockData.setAcmlTrPbmn(toDecimal(hash.get("a")));
+        stockData.setIndustry(hash.get("i"));
+        stockData.setHtsAvls(toDecimal(hash.get("m")));
+        stockData.setW52Hgpr(toDecimal(hash.get("wh")));
+        stockData.setW52Lwpr(toDecimal(hash.get("wl")));
+        stockData.setInvestmentCategory(hash.get("c"));
+        Long epochMillis = toLong(hash.get("t"));
+        if (epochMillis != null) {
+            stockData.setLastUpdated(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()));
+        }
+        return stockData;
+    }
+
+    private void put(Map<String, String> hash, String field, Object value) {
+        if (value instanceof BigDecimal) {
+            hash.put(field, ((BigDecimal) value).toPlainString());
+        } else if (value != null) {
+            hash.put(field, value.toString());
+        }
+    }
+
+    private BigDecimal toDecimal(String value) {
+        return value != null ? new BigDecimal(value) : null;
+    }
+
+    private Long toLong(String value) {
+        return value != null ? Long.valueOf(value) : null;
+    }
+}
@@ -0,0 +1,133 @@
+package com.kb.stock.cache;
+
+import com.kb.stock.service.StockSubscriptionRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * replica 노드의 구독 종목을 primary 에 알리기
+ * replica 는 시세를 수집하지 않으므로 replica 에만 구독자가 있는 종목은 primary 가 실시간/우선 조회 대상으로 삼아야 한다.
+ * - replica: interval-ms 마다 자기 구독 종목을 stock:interest:{노드 ID} 집합으로 통째로 바꿔 쓴다 (TTL = interval x 3).
+ * - primary: 같은 주기로 stock:interest:* 를 모두 읽어 합친 뒤, 직전과 달라진 종목만 구독 레지스트리에 acquire/release 한다.
+ * replica 가 죽으면 키가 만료되어 그 노드의 구독도 primary 에서 빠진다.
+ */
+@Component
+public class RedisSubscriptionSync {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisSubscriptionSync.class);
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private RedisQuoteStore redisQuoteStore;
+
+    @Autowired
+    private StockSubscriptionRegistry subscriptionRegistry;
+
+    @Value("${stock.redis.interest-key-prefix:stock:interest:}")
+    private String keyPrefix;
+
+    @Value("${stock.redis.interest-interval-ms:5000}")
+    private long intervalMs;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // primary: replica 구독으로 레지스트리에 올려 둔 종목
+    private final Set<String> remoteCodes = new HashSet<>();
+
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong released = new AtomicLong();
+
+    @Scheduled(fixedDelayString = "${stock.redis.interest-interval-ms:5000}")
+    public void sync() {
+        try {
+            if (redisQuoteStore.isReplica()) {
+                publishLocalInterest();
+            } else if (redisQuoteStore.isPrimary()) {
+                mergeRemoteInterest();
+            }
+        } catch (Exception e) {
+            // 다음 주기에 다시 맞춘다 (primary 는 그동안 직전 구독을 유지)
+            logger.error("Error syncing subscription interest through Redis: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Long> getMetrics() {
+        return Map.of(
+                "interestRemoteSymbols", (long) remoteCodes.size(),
+                "interestAcquired", acquired.get(),
+                "interestReleased", released.get());
+    }
+
+    // 임시 키에 채운 뒤 RENAME 해서 primary 가 비어 있는 중간 상태를 보지 않게 한다
+    private void publishLocalInterest() {
+        Set<String> stockCodes = subscriptionRegistry.getSubscribedStocks();
+        String key = keyPrefix + nodeId;
+        if (stockCodes.isEmpty()) {
+            redisTemplate.delete(key);
+            return;
+        }
+        String tempKey = key + ":tmp";
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            stringConnection.del(tempKey);
+            stringConnection.sAdd(tempKey, stockCodes.toArray(new String[0]));
+            stringConnection.pExpire(tempKey, intervalMs * 3);
+            stringConnection.rename(tempKey, key);
+            return null;
+        });
+    }
+
+    private void mergeRemoteInterest() {
+        List<String> keys = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match(keyPrefix + "*").count(100).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            cursor.forEachRemaining(keys::add);
+        }
+        Set<String> wanted = new HashSet<>();
+        if (!keys.isEmpty()) {
+            List<Object> members = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringConnection = (StringRedisConnection) connection;
+                for (String key : keys) {
+                    stringConnection.sMembers(key);
+                }
+                return null;
+            });
+            for (Object stockCodes : members) {
+                if (stockCodes instanceof Collection) {
+                    for (Object stockCode : (Collection<?>) stockCodes) {
+                        wanted.add(String.valueOf(stockCode));
+                    }
+                }
+            }
+        }
+
+        for (String stockCode : wanted) {
+            if (remoteCodes.add(stockCode)) {
+                subscriptionRegistry.acquire(stockCode);
+                acquired.incrementAndGet();
+            }
+        }
+        for (Iterator<String> it = remoteCodes.iterator(); it.hasNext(); ) {
+            String stockCode = it.next();
+            if (!wanted.contains(stockCode)) {
+                it.remove();
+                subscriptionRegistry.release(stockCode);
+                released.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.kb.stock.cache;
+
+import com.kb.stock.dto.StockDTO;
+import com.kb.stock.mapper.StockMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 종목 코드 → 종목명 사전
+ * 시작 시 stock_codes 테이블을 한 번 읽어 불변 맵으로 들고 있고,
+ * stock_codes.last_updated 가 바뀌면 새 맵을 만들어 참조만 교체한다.
+ */
+@Component
+public class StockNameDictionary {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockNameDictionary.class);
+
+    @Autowired
+    private StockMapper stockMapper;
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), List.of(), null);
+
+    @PostConstruct
+    public void init() {
+        try {
+            reload(stockMapper.selectStockCodesLastUpdated());
+        } catch (Exception e) {
+            logger.error("Error loading stock name dictionary: {}", e.getMessage(), e);
+        }
+    }
+
+    // stock_codes 변경 여부를 주기적으로 확인 (기본 10분)
+    @Scheduled(fixedDelayString = "${stock.name-dictionary.check-interval-ms:600000}")
+    public void refreshIfChanged() {
+        try {
+            LocalDateTime lastUpdated = stockMapper.selectStockCodesLastUpdated();
+            if (!Objects.equals(lastUpdated, snapshot.lastUpdated)) {
+                reload(lastUpdated);
+            }
+        } catch (Exception e) {
+            logger.error("Error refreshing stock name dictionary: {}", e.getMessage(), e);
+        }
+    }
+
+    private void reload(LocalDateTime lastUpdated) {
+        List<StockDTO> rows = stockMapper.selectStockCodeNames();
+        Map<String, String> names = new HashMap<>(rows.size() * 2);
+        for (StockDTO row : rows) {
+            names.put(row.getStockCode(), row.getStockName() != null ? row.getStockName() : "");
+        }
+        snapshot = new Snapshot(Map.copyOf(names), List.copyOf(names.keySet()), lastUpdated);
+        logger.info("Loaded {} stock names (last updated {})", names.size(), lastUpdated);
+    }
+
+    public String getStockName(String stockCode) {
+        return snapshot.names.get(stockCode);
+    }
+
+    public List<String> getStockCodes() {
+        return snapshot.stockCodes;
+    }
+
+    public int size() {
+        return snapshot.names.size();
+    }
+
+    private static final class Snapshot {
+        private final Map<String, String> names;
+        private final List<String> stockCodes;
+        private final LocalDateTime lastUpdated;
+
+        private Snapshot(Map<String, String> names, List<String> stockCodes, LocalDateTime lastUpdated) {
+            this.names = names;
+            this.stockCodes = stockCodes;
+            this.lastUpdated = lastUpdated;
+        }
+    }
+}
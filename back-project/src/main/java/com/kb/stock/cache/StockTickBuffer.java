@@ -0,0 +1,219 @@
+package com.kb.stock.cache;
+
+import com.kb.stock.dto.StockTicksDTO;
+import com.kb.stock.scheduler.KrxSessionCalendar;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 종목별 장중 시세 기록 (고정 크기 링 버퍼)
+ * 시각/가격(x100 고정소수점)/누적 거래량을 원시 타입 배열에 두고 가득 차면 오래된 것부터 덮어쓴다.
+ * InMemoryStockCache.updateAll(쓰기 스레드 하나)이 시세를 반영할 때마다 한 건씩 추가하고,
+ * 읽기는 잠금 없이 복사한 뒤 그 사이 덮어써진 앞부분만 버린다.
+ * 정규장 시간의 시세만 남긴다 (DB/Redis 재적재 값은 InMemoryStockCache 가 넘기지 않는다).
+ *
+ * 링은 그날 처음 기록할 때 만들고 최대 stock.ticks.max-symbols 종목까지 둔다.
+ * 가득 찬 뒤에는 조회(getTicks)된 적 있는 종목만 새로 받으며, 그때 가장 오래 조회되지 않은 링을 비워 자리를 만든다.
+ * 매 거래일 정규장이 열리면 링을 모두 돌려주고, 전날 조회된 종목은 계속 우선 대상으로 둔다.
+ */
+@Component
+public class StockTickBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockTickBuffer.class);
+
+    @Autowired
+    private KrxSessionCalendar sessionCalendar;
+
+    @Value("${stock.ticks.capacity:1024}")
+    private int capacity;
+
+    @Value("${stock.ticks.max-symbols:800}")
+    private int maxSymbols;
+
+    private final Map<String, TickRing> rings = new ConcurrentHashMap<>();
+    // 꽉 찼을 때 자리를 받을 수 있는 종목 (조회된 적 있는 종목)
+    private final Set<String> requested = ConcurrentHashMap.newKeySet();
+    private final AtomicLong droppedSymbols = new AtomicLong();
+    private final AtomicLong evictedSymbols = new AtomicLong();
+    private volatile LocalDate lastResetDate;
+    // 기록할 정규장 구간 (epoch millis, 마감 시각의 1분 포함)
+    private volatile long sessionStartMillis = Long.MAX_VALUE;
+    private volatile long sessionEndMillis = Long.MIN_VALUE;
+
+    @PostConstruct
+    public void init() {
+        capacity = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1; // 2의 거듭제곱으로 올림
+        logger.info("Tick buffer: {} ticks x up to {} symbols ({} KB max)",
+                capacity, maxSymbols, (long) capacity * maxSymbols * 3 * Long.BYTES / 1024);
+    }
+
+    // 시세 한 건 추가 (쓰기 스레드 하나에서만 호출, 정규장 밖이거나 이전 기록보다 오래된 시각은 버린다)
+    void append(String stockCode, long timeMillis, long priceFixedPoint, long volume) {
+        if (timeMillis < sessionStartMillis || timeMillis > sessionEndMillis) {
+            return;
+        }
+        TickRing ring = rings.get(stockCode);
+        if (ring == null) {
+            if (rings.size() >= maxSymbols && !(requested.contains(stockCode) && evictLeastRecentlyRead())) {
+                droppedSymbols.incrementAndGet();
+                return;
+            }
+            ring = rings.computeIfAbsent(stockCode, code -> new TickRing(capacity));
+        }
+        ring.append(timeMillis, priceFixedPoint, volume);
+    }
+
+    // 가장 오래 조회되지 않은 링(한 번도 조회되지 않은 링 먼저) 하나를 비운다
+    private boolean evictLeastRecentlyRead() {
+        String victim = null;
+        long oldest = Long.MAX_VALUE;
+        for (Map.Entry<String, TickRing> entry : rings.entrySet()) {
+            long lastRead = entry.getValue().lastReadMillis;
+            if (lastRead < oldest) {
+                oldest = lastRead;
+                victim = entry.getKey();
+            }
+        }
+        if (victim == null) {
+            return false;
+        }
+        rings.remove(victim);
+        evictedSymbols.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * fromMillis 이후(초과) 기록 (없으면 빈 배열)
+     * 다음 조회 때는 마지막으로 받은 시각을 from 으로 넘기면 된다.
+     */
+    public StockTicksDTO getTicks(String stockCode, long fromMillis) {
+        TickRing ring = rings.get(stockCode);
+        if (ring == null) {
+            if (requested.size() < maxSymbols) {
+                requested.add(stockCode);
+            }
+            return new StockTicksDTO(stockCode, new long[0], new double[0], new long[0]);
+        }
+        ring.lastReadMillis = System.currentTimeMillis();
+        return ring.read(stockCode, fromMillis);
+    }
+
+    // 매 거래일 정규장이 처음 열린 것을 본 순간 전날 링을 돌려주고 오늘 기록 구간을 정한다
+    @Scheduled(fixedDelayString = "${stock.ticks.reset-check-interval-ms:30000}")
+    public void resetAtSessionOpen() {
+        LocalDateTime now = sessionCalendar.now();
+        LocalDate today = now.toLocalDate();
+        if (sessionCalendar.isSessionOpen(now) && !today.equals(lastResetDate)) {
+            lastResetDate = today;
+            int released = rings.size();
+            rings.forEach((stockCode, ring) -> {
+                if (ring.lastReadMillis > 0 && requested.size() < maxSymbols) {
+                    requested.add(stockCode);
+                }
+            });
+            rings.clear();
+            sessionStartMillis = today.atTime(sessionCalendar.getOpenTime())
+                    .atZone(KrxSessionCalendar.KRX_ZONE).toInstant().toEpochMilli();
+            sessionEndMillis = today.atTime(sessionCalendar.getCloseTime()).plusSeconds(59)
+                    .atZone(KrxSessionCalendar.KRX_ZONE).toInstant().toEpochMilli();
+            logger.info("Tick buffers reset for session {} ({} symbols released, {} requested)", today, released, requested.size());
+        }
+    }
+
+    public Map<String, Long> getMetrics() {
+        return Map.of(
+                "tickSymbols", (long) rings.size(),
+                "tickRequestedSymbols", (long) requested.size(),
+                "tickDroppedSymbols", droppedSymbols.get(),
+                "tickEvictedSymbols", evictedSymbols.get());
+    }
+
+    /**
+     * 종목 하나의 링
+     * count 는 지금까지 쓴 건수(단조 증가), 유효한 기록은 [max(0, count - capacity), count) 구간이다.
+     */
+    private static final class TickRing {
+        private final long[] times;
+        private final long[] prices;
+        private final long[] volumes;
+        private final int mask;
+        private volatile long count;
+        // 마지막 조회 시각 (0 이면 조회된 적 없음)
+        private volatile long lastReadMillis;
+
+        private TickRing(int capacity) {
+            times = new long[capacity];
+            prices = new long[capacity];
+            volumes = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        private synchronized void append(long timeMillis, long priceFixedPoint, long volume) {
+            long next = count;
+            if (next > 0 && timeMillis < times[(int) ((next - 1) & mask)]) {
+                return;
+            }
+            // 이전 count 공개보다 이번 칸 덮어쓰기가 먼저 보이면 안 된다
+            VarHandle.storeStoreFence();
+            int slot = (int) (next & mask);
+            times[slot] = timeMillis;
+            prices[slot] = priceFixedPoint;
+            volumes[slot] = volume;
+            count = next + 1; // volatile 쓰기로 위 값들을 공개
+        }
+
+        private StockTicksDTO read(String stockCode, long fromMillis) {
+            int capacity = mask + 1;
+            long[] copiedTimes = new long[capacity];
+            long[] copiedPrices = new long[capacity];
+            long[] copiedVolumes = new long[capacity];
+            while (true) {
+                long end = count;
+                long start = Math.max(0, end - capacity);
+                int n = 0;
+                for (long i = start; i < end; i++) {
+                    int slot = (int) (i & mask);
+                    copiedTimes[n] = times[slot];
+                    copiedPrices[n] = prices[slot];
+                    copiedVolumes[n] = volumes[slot];
+                    n++;
+                }
+                // 복사하는 동안 덮어써진 앞부분(쓰는 중인 한 칸 포함)은 버린다
+                VarHandle.loadLoadFence();
+                long endAfter = count;
+                long firstValid = Math.max(start, endAfter - capacity + 1);
+                if (firstValid >= end && end > start) {
+                    continue; // 통째로 덮어써짐, 다시 읽기
+                }
+                int skip = (int) Math.max(0, firstValid - start);
+                int from = skip;
+                while (from < n && copiedTimes[from] <= fromMillis) {
+                    from++;
+                }
+                int length = n - from;
+                double[] prices = new double[length];
+                for (int i = 0; i < length; i++) {
+                    prices[i] = QuoteBook.toDouble(copiedPrices[from + i]);
+                }
+                return new StockTicksDTO(stockCode,
+                        Arrays.copyOfRange(copiedTimes, from, n),
+                        prices,
+                        Arrays.copyOfRange(copiedVolumes, from, n));
+            }
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.kb.stock.controller;
 
 import com.kb.stock.dto.StockCandleDTO;
+import com.kb.stock.dto.StockMinuteCandleDTO;
 import com.kb.stock.service.StockCandleService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -20,13 +22,46 @@ public class StockCandleController {
         this.stockCandleService = stockCandleService;
     }
 
+    // 특정 종목의 오늘 1분봉을 조회하는 API
+    @ApiOperation(value = "특정 종목의 오늘 1분봉 조회",
+            notes = "실시간 시세로 만든 오늘 1분봉과 진행 중인 현재 분봉을 시간순으로 반환합니다.")
+    @GetMapping("/{stockCode}/minute")
+    public List<StockMinuteCandleDTO> getMinuteCandleData(
+            @ApiParam(value = "주식 코드", required = true) @PathVariable String stockCode) {
+
+        return stockCandleService.getTodayMinuteCandles(stockCode);
+    }
+
+    // 과거 일봉을 다시 적재하거나 고친 종목의 차트 캐시를 비우는 API
+    @ApiOperation(value = "특정 종목의 일봉 캐시 비우기",
+            notes = "로컬 일봉 저장소 파일과 주봉/월봉 캐시를 지우고 다음 조회 때 DB 에서 다시 만듭니다.")
+    @PostMapping("/{stockCode}/invalidate")
+    public ResponseEntity<Void> invalidateStockCandles(
+            @ApiParam(value = "주식 코드", required = true) @PathVariable String stockCode) {
+        try {
+            stockCandleService.invalidateHistory(stockCode);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    // 일괄 적재(importCandles) 후 전 종목의 차트 캐시를 비우는 API
+    @ApiOperation(value = "전 종목 일봉 캐시 비우기",
+            notes = "로컬 일봉 저장소 파일과 주봉/월봉 캐시를 모두 지웁니다.")
+    @PostMapping("/invalidate")
+    public ResponseEntity<Void> invalidateAllStockCandles() {
+        stockCandleService.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+
     // 특정 종목의 기간별 주식 데이터를 조회하는 API
     @ApiOperation(value = "특정 종목의 기간별 주식 데이터를 조회",
             notes = "주식 코드와 기간에 맞는 데이터를 반환합니다.")
     @GetMapping("/{stockCode}/{period}")
     public List<StockCandleDTO> getStockCandleData(
             @ApiParam(value = "주식 코드", required = true) @PathVariable String stockCode,
-            @ApiParam(value = "기간 (1day, 1week, 1month, 1year, 3years, 5years)", required = true) @PathVariable String period) {
+            @ApiParam(value = "기간 (1day, 1week, 1month, 3months, 1year: 일봉 / 3years: 주봉 / 5years: 월봉)", required = true) @PathVariable String period) {
 
         return stockCandleService.getStockData(stockCode, period);
     }
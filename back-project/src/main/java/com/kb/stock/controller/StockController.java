@@ -1,16 +1,23 @@
 package com.kb.stock.controller;
 
+import com.kb.stock.dto.StockChangesDTO;
 import com.kb.stock.dto.StockDTO;
+import com.kb.stock.dto.StockSweepStats;
+import com.kb.stock.dto.StockTicksDTO;
 import com.kb.stock.service.StockService;
+import com.kb.stock.service.StockStreamService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -25,8 +32,11 @@ public class StockController {
     @Autowired
     private StockService stockService;
 
+    @Autowired
+    private StockStreamService stockStreamService;
+
     // 모든 주식 데이터를 조회합니다.
-    @ApiOperation(value = "모든 주식 데이터를 조회합니다.", notes = "데이터베이스에 저장된 모든 주식 데이터를 조회합니다.")
+    @ApiOperation(value = "모든 주식 데이터를 조회합니다.", notes = "메모리 시세 스냅샷의 모든 주식 데이터를 조회합니다.")
     @GetMapping("/all")
     public ResponseEntity<List<StockDTO>> getAllStocks() {
         logger.info("getAllStocks 메서드 호출됨");
@@ -39,6 +49,55 @@ public class StockController {
         }
     }
 
+    // 특정 버전 이후 바뀐 주식 데이터만 조회합니다.
+    @ApiOperation(value = "특정 버전 이후 바뀐 주식 데이터를 조회합니다.",
+            notes = "since 버전 이후 갱신된 종목과 현재 epoch/버전을 반환합니다. since 가 없거나, epoch 가 직전 응답과 다르거나(서버 재시작, 다른 노드), "
+                    + "변경 기록 범위를 벗어나면 전체 종목을 반환합니다(full=true).")
+    @GetMapping("/changes")
+    public ResponseEntity<StockChangesDTO> getStockChanges(@RequestParam(value = "epoch", required = false) String epoch,
+                                                           @RequestParam(value = "since", required = false) Long since) {
+        try {
+            return ResponseEntity.ok(stockService.getChangesSince(epoch, since != null ? since : -1));
+        } catch (Exception e) {
+            logger.error("주식 변경 데이터 조회 중 오류 발생", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    // 종목 시세를 Server-Sent Events 로 구독합니다.
+    @ApiOperation(value = "종목 시세를 Server-Sent Events 로 구독합니다.",
+            notes = "codes 에 쉼표로 구분한 종목 코드를 넘기면 바뀐 시세를 quotes 이벤트(JSON 배열)로 보냅니다. "
+                    + "이벤트 id 는 시세 캐시 버전이며, 재연결 시 Last-Event-ID 이후 변경분부터 이어서 보냅니다.")
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamStocks(@RequestParam("codes") String codes,
+                                                   @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        try {
+            return ResponseEntity.ok(stockStreamService.open(Arrays.asList(codes.split(",")), lastEventId));
+        } catch (IllegalArgumentException e) {
+            logger.warn("잘못된 시세 스트림 요청: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IllegalStateException e) {
+            logger.warn("시세 스트림 연결 거부: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    // 종목의 장중 시세 기록을 조회합니다.
+    @ApiOperation(value = "종목의 장중 시세 기록을 조회합니다.",
+            notes = "오늘 정규장 이후 시각(epoch ms)/가격/누적 거래량을 시각 순으로 반환합니다. "
+                    + "from 을 주면 그 시각 이후 기록만 반환하므로 마지막으로 받은 시각을 넘겨 이어 받을 수 있습니다. "
+                    + "종목당 최근 stock.ticks.capacity 건까지만 보관합니다.")
+    @GetMapping("/{stockCode}/ticks")
+    public ResponseEntity<StockTicksDTO> getStockTicks(@PathVariable("stockCode") String stockCode,
+                                                       @RequestParam(value = "from", required = false) Long from) {
+        try {
+            return ResponseEntity.ok(stockService.getTicks(stockCode, from != null ? from : Long.MIN_VALUE));
+        } catch (Exception e) {
+            logger.error("종목 시세 기록 조회 중 오류 발생: {}", stockCode, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     // 모든 주식 코드를 조회합니다.
     @ApiOperation(value = "모든 주식 코드를 조회합니다.", notes = "데이터베이스에 저장된 모든 주식 코드를 조회합니다.")
     @GetMapping("/codes")
@@ -53,6 +112,24 @@ public class StockController {
         }
     }
 
+    // 최근 전체 시세 갱신 통계를 조회합니다.
+    @ApiOperation(value = "최근 전체 시세 갱신 통계를 조회합니다.", notes = "처리량, 소요 시간, 429 재시도 횟수를 반환합니다.")
+    @GetMapping("/sweep-stats")
+    public ResponseEntity<StockSweepStats> getLastSweepStats() {
+        StockSweepStats stats = stockService.getLastSweepStats();
+        if (stats == null) {
+            return ResponseEntity.noContent().build();
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    // 시세 수집 지표를 조회합니다.
+    @ApiOperation(value = "시세 수집 지표를 조회합니다.", notes = "변경 없는 시세로 건너뛴 저장/전송 횟수와 write-behind 버퍼 상태를 반환합니다.")
+    @GetMapping("/ingest-metrics")
+    public ResponseEntity<Map<String, Object>> getIngestMetrics() {
+        return ResponseEntity.ok(stockService.getIngestMetrics());
+    }
+
     // 카테고리별 평균 등락률 조회
     @ApiOperation(value = "카테고리별 평균 등락률을 조회합니다.", notes = "각 카테고리의 평균 등락률과 관련된 데이터를 조회합니다.")
     @GetMapping("/categories")
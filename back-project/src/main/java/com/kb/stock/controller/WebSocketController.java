@@ -100,14 +100,6 @@ public class WebSocketController {
         }
         return ResponseEntity.ok("Subscribed to stocks successfully");
     }
-    @ApiOperation(value = "테스트 주식 데이터를 반환합니다.", notes = "테스트 주식 데이터를 전송합니다.", produces = "application/json; charset=UTF-8")
-    @GetMapping("/test-prices")
-    public ResponseEntity<String> getTestStockPrices() {
-        webSocketService.sendTestStockData(); // 테스트 데이터를 전송
-        return ResponseEntity.ok()
-                .header("Content-Type", "text/plain; charset=UTF-8")  // UTF-8로 인코딩 설정
-                .body("테스트 데이터가 전송되었습니다.");  // 한글 메세지 전송
-    }
 
 
 }
\ No newline at end of file
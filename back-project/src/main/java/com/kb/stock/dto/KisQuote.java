@@ -0,0 +1,22 @@
+package com.kb.stock.dto;
+
+import lombok.Data;
+
+// 주식현재가 시세(inquire-price) 응답의 output 중 사용하는 필드만 담는 타입
+// 가격은 원 단위 정수, 등락률은 소수점 둘째 자리까지 100배한 정수
+@Data
+public class KisQuote {
+    private String stockCode;        // stck_shrn_iscd
+    private String industry;         // bstp_kor_isnm
+    private long currentPrice;       // stck_prpr
+    private long priceChange;        // prdy_vrss
+    private long priceChangePctX100; // prdy_ctrt * 100
+    private long highPrice;          // stck_hgpr
+    private long lowPrice;           // stck_lwpr
+    private long openingPrice;       // stck_oprc
+    private long volume;             // acml_vol
+    private long htsAvls;            // hts_avls (HTS 시가총액, 억원)
+    private long w52Hgpr;            // w52_hgpr
+    private long w52Lwpr;            // w52_lwpr
+    private long acmlTrPbmn;         // acml_tr_pbmn
+}
@@ -0,0 +1,20 @@
+package com.kb.stock.dto;
+
+import lombok.Data;
+
+// 실시간 체결가(H0STCNT0) 한 건 중 사용하는 필드만 담는 타입
+// 가격은 원 단위 정수, 등락률은 소수점 둘째 자리까지 100배한 정수
+@Data
+public class KisTick {
+    private String stockCode;        // MKSC_SHRN_ISCD
+    private int tickTime;            // STCK_CNTG_HOUR (HHmmss)
+    private long currentPrice;       // STCK_PRPR
+    private long priceChange;        // PRDY_VRSS
+    private long priceChangePctX100; // PRDY_CTRT * 100
+    private long openingPrice;       // STCK_OPRC
+    private long highPrice;          // STCK_HGPR
+    private long lowPrice;           // STCK_LWPR
+    private long tradeVolume;        // CNTG_VOL (체결 거래량)
+    private long volume;             // ACML_VOL (누적 거래량)
+    private long acmlTrPbmn;         // ACML_TR_PBMN (누적 거래대금)
+}
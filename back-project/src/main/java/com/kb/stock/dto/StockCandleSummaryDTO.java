@@ -0,0 +1,11 @@
+package com.kb.stock.dto;
+
+import lombok.Data;
+
+// 종목의 DB 일봉 건수와 처음/마지막 거래일 (로컬 일봉 저장소 검증용)
+@Data
+public class StockCandleSummaryDTO {
+    private long candleCount;
+    private String firstDay;
+    private String lastDay;
+}
@@ -0,0 +1,19 @@
+package com.kb.stock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// since 버전 이후 바뀐 종목 시세 (full 이면 stocks 는 전체 종목이므로 클라이언트는 목록을 교체)
+// 버전은 서버 프로세스마다 따로 세므로 다음 요청에 epoch 도 함께 보내야 한다 (다르면 full)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockChangesDTO {
+    private String epoch;
+    private long version;
+    private boolean full;
+    private List<StockDTO> stocks;
+}
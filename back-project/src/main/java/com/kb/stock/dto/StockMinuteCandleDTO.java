@@ -0,0 +1,20 @@
+package com.kb.stock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMinuteCandleDTO {
+    private String stockCode;
+    private LocalDateTime stockCandleTime; // 분봉 시작 시각
+    private float stockCandleOpen;         // 시가
+    private float stockCandleClose;        // 종가
+    private float stockCandleHigh;         // 고가
+    private float stockCandleLow;          // 저가
+    private long stockCandleVolume;        // 1분 거래량
+}
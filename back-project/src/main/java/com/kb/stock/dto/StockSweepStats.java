@@ -0,0 +1,16 @@
+package com.kb.stock.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class StockSweepStats {
+    private LocalDateTime startedAt;   // 갱신 시작 시각
+    private int totalCount;            // 대상 종목 수
+    private int successCount;          // 성공 종목 수
+    private int failureCount;          // 실패 종목 수
+    private int throttledRetries;      // 429(호출 한도 초과)로 인한 재시도 횟수
+    private long elapsedMs;            // 전체 소요 시간
+    private double quotesPerSecond;    // 초당 처리 종목 수
+}
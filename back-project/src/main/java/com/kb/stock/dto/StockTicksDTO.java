@@ -0,0 +1,16 @@
+package com.kb.stock.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// 종목의 장중 체결/시세 기록 (같은 인덱스끼리 한 건, 시각 오름차순)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockTicksDTO {
+    private String stockCode;
+    private long[] times;    // epoch millis
+    private double[] prices;
+    private long[] volumes;  // 누적 거래량
+}
@@ -0,0 +1,86 @@
+package com.kb.stock.handler;
+
+import com.kb.stock.dto.StockDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 브라우저 전송 전 종목별 시세 합치기
+ * 시세가 들어올 때마다 보내지 않고 종목별 최신 시세만 남겨 두었다가
+ * stock.ws.conflate-interval-ms 마다 바뀐 종목을 세션별 배열 한 프레임으로 보낸다.
+ * 같은 묶음을 STOMP 토픽(/topic/stock.{종목코드})에도 발행한다.
+ */
+@Component
+public class StockBroadcastConflator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockBroadcastConflator.class);
+
+    private final Map<String, StockDTO> pending = new ConcurrentHashMap<>();
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+
+    private StockWebSocketHandler webSocketHandler;
+
+    @Autowired
+    private StockTopicBroadcaster topicBroadcaster;
+
+    @Autowired
+    @Lazy
+    public void setWebSocketHandler(StockWebSocketHandler webSocketHandler) {
+        this.webSocketHandler = webSocketHandler;
+    }
+
+    // 같은 종목의 이전 시세가 아직 전송 전이면 덮어쓴다
+    public void publish(StockDTO stockData) {
+        published.incrementAndGet();
+        pending.put(stockData.getStockCode(), stockData);
+    }
+
+    @Scheduled(fixedDelayString = "${stock.ws.conflate-interval-ms:200}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<StockDTO> batch = new ArrayList<>(pending.size());
+        for (String stockCode : pending.keySet()) {
+            StockDTO stockData = pending.remove(stockCode);
+            if (stockData != null) {
+                batch.add(stockData);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        flushed.addAndGet(batch.size());
+        try {
+            webSocketHandler.sendStockBatch(batch);
+        } catch (Exception e) {
+            logger.error("Error broadcasting {} conflated stock updates", batch.size(), e);
+        }
+        try {
+            topicBroadcaster.publish(batch);
+        } catch (Exception e) {
+            logger.error("Error publishing {} conflated stock updates to STOMP topics", batch.size(), e);
+        }
+    }
+
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("broadcastPublished", published.get());
+        metrics.put("broadcastFlushed", flushed.get());
+        metrics.putAll(topicBroadcaster.getMetrics());
+        return metrics;
+    }
+}
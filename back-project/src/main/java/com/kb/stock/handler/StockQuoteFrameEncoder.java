@@ -0,0 +1,147 @@
+package com.kb.stock.handler;
+
+import com.kb.stock.dto.StockDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 브라우저 WebSocket 바이너리 시세 프레임 (서브프로토콜 kb-quote.bin.v1)
+ * 핸드셰이크에서 이 서브프로토콜을 협상한 세션에만 JSON 대신 이 형식으로 보낸다.
+ *
+ * <pre>
+ * frame     := version(u8 = 1) dictCount(varint) dictEntry* quoteCount(varint) quote*
+ * dictEntry := index(varint) length(u8) stockCode(ASCII)   // 이 세션에서 처음 보내는 종목의 번호
+ * quote     := index(varint) mask(u8) delta(zigzag varint)* // mask 의 비트 순서대로 바뀐 필드만
+ * </pre>
+ *
+ * 필드 비트: 0 현재가, 1 전일 대비, 2 등락률, 3 시가, 4 고가, 5 저가 (모두 x100 고정소수점),
+ * 6 누적 거래량, 7 누적 거래대금 (정수).
+ * delta 는 이 세션에 마지막으로 보낸 값과의 차이다 (처음엔 0 기준이라 절대값).
+ * 클라이언트는 종목 번호별로 마지막 값을 들고 있다가 delta 를 더한다.
+ * 구독을 해제하면 서버는 그 종목의 기준값을 0 으로 되돌리므로(Session.forget) 클라이언트도 그 종목 번호의 값을 모두 0 으로 지워야 한다.
+ * 다시 구독하면 같은 번호로 절대값(0 기준 delta)부터 다시 온다.
+ * 프레임 하나라도 빠지면 값이 어긋나므로 바이너리 세션은 버퍼 초과나 전송 실패 시 메시지를 버리지 않고 연결을 끊는다.
+ */
+public final class StockQuoteFrameEncoder {
+
+    public static final String SUBPROTOCOL = "kb-quote.bin.v1";
+
+    private static final int VERSION = 1;
+    private static final int FIELD_COUNT = 8;
+    private static final BigDecimal FIXED_POINT_SCALE = BigDecimal.valueOf(100);
+
+    private StockQuoteFrameEncoder() {
+    }
+
+    /**
+     * 세션별 인코딩 상태 (종목 번호 사전과 마지막으로 보낸 값)
+     * 인코딩과 전송 순서가 어긋나면 안 되므로 이 객체로 동기화한 채 인코딩하고 전송해야 한다.
+     */
+    public static final class Session {
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final List<long[]> lastSent = new ArrayList<>();
+
+        // 구독 해제한 종목은 다음에 다시 받을 때 전 필드를 보내도록 기준값을 지운다
+        public void forget(String stockCode) {
+            Integer index = indices.get(stockCode);
+            if (index != null) {
+                Arrays.fill(lastSent.get(index), 0L);
+            }
+        }
+    }
+
+    public static byte[] encode(Session session, Collection<StockDTO> stocks) {
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+        ByteArrayOutputStream quotes = new ByteArrayOutputStream(stocks.size() * 16);
+        int dictCount = 0;
+        int quoteCount = 0;
+        long[] current = new long[FIELD_COUNT];
+        boolean[] present = new boolean[FIELD_COUNT];
+
+        for (StockDTO stockData : stocks) {
+            String stockCode = stockData.getStockCode();
+            Integer index = session.indices.get(stockCode);
+            if (index == null) {
+                index = session.lastSent.size();
+                session.indices.put(stockCode, index);
+                session.lastSent.add(new long[FIELD_COUNT]);
+                byte[] code = stockCode.getBytes(StandardCharsets.US_ASCII);
+                writeVarint(dictionary, index);
+                dictionary.write(code.length);
+                dictionary.write(code, 0, code.length);
+                dictCount++;
+            }
+
+            read(stockData, current, present);
+            long[] last = session.lastSent.get(index);
+            int mask = 0;
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                if (present[field] && current[field] != last[field]) {
+                    mask |= 1 << field;
+                }
+            }
+            if (mask == 0) {
+                continue;
+            }
+            writeVarint(quotes, index);
+            quotes.write(mask);
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                if ((mask & (1 << field)) != 0) {
+                    writeVarint(quotes, zigzag(current[field] - last[field]));
+                    last[field] = current[field];
+                }
+            }
+            quoteCount++;
+        }
+
+        if (quoteCount == 0 && dictCount == 0) {
+            return null;
+        }
+        ByteArrayOutputStream frame = new ByteArrayOutputStream(dictionary.size() + quotes.size() + 8);
+        frame.write(VERSION);
+        writeVarint(frame, dictCount);
+        frame.write(dictionary.toByteArray(), 0, dictionary.size());
+        writeVarint(frame, quoteCount);
+        frame.write(quotes.toByteArray(), 0, quotes.size());
+        return frame.toByteArray();
+    }
+
+    private static void read(StockDTO stockData, long[] values, boolean[] present) {
+        setFixedPoint(values, present, 0, stockData.getCurrentPrice());
+        setFixedPoint(values, present, 1, stockData.getPriceChange());
+        setFixedPoint(values, present, 2, stockData.getPriceChangePct());
+        setFixedPoint(values, present, 3, stockData.getOpeningPrice());
+        setFixedPoint(values, present, 4, stockData.getHighPrice());
+        setFixedPoint(values, present, 5, stockData.getLowPrice());
+        present[6] = stockData.getVolume() != null;
+        values[6] = present[6] ? stockData.getVolume() : 0L;
+        present[7] = stockData.getAcmlTrPbmn() != null;
+        values[7] = present[7] ? stockData.getAcmlTrPbmn().setScale(0, RoundingMode.HALF_UP).longValue() : 0L;
+    }
+
+    private static void setFixedPoint(long[] values, boolean[] present, int field, BigDecimal value) {
+        present[field] = value != null;
+        values[field] = value != null ? value.multiply(FIXED_POINT_SCALE).setScale(0, RoundingMode.HALF_UP).longValue() : 0L;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
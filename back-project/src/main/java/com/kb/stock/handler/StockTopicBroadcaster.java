@@ -0,0 +1,131 @@
+package com.kb.stock.handler;
+
+import com.kb.stock.cache.RedisQuoteStore;
+import com.kb.stock.dto.StockDTO;
+import com.kb.stock.service.StockSubscriptionRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * STOMP 토픽(/topic/stock.{종목코드})으로 시세 발행
+ * 이 노드에 붙은 STOMP 구독은 구독 레지스트리에 올려 이 노드가 해당 종목을 수집하게 하고,
+ * 수집한 시세는 브로커로 발행한다. 릴레이 모드에서는 다른 노드의 구독자도 받아야 하므로
+ * 로컬 구독 여부와 관계없이 발행하고, simple broker 모드에서는 로컬 구독이 있는 종목만 발행한다.
+ *
+ * 릴레이 모드에서는 같은 시세가 노드 수만큼 중복 발행되지 않도록 수집 노드 하나만 발행한다.
+ * stock.redis.mode=replica 인 노드는 발행하지 않고(구독자는 브로커에서 primary 의 발행을 받는다),
+ * primary 또는 Redis 를 쓰지 않는 단일 노드(off)가 발행한다. 여러 노드를 릴레이로 묶을 때는 primary 를 하나만 둔다.
+ */
+@Component
+public class StockTopicBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockTopicBroadcaster.class);
+
+    public static final String TOPIC_PREFIX = "/topic/stock.";
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private StockSubscriptionRegistry subscriptionRegistry;
+
+    @Autowired
+    private RedisQuoteStore redisQuoteStore;
+
+    @Value("${stock.stomp.relay.enabled:false}")
+    private boolean relayEnabled;
+
+    private final Map<String, Map<String, String>> sessionSubscriptions = new ConcurrentHashMap<>(); // 세션 ID → (구독 ID → 종목)
+    private final Map<String, Integer> localSubscriberCounts = new ConcurrentHashMap<>();           // 종목 → 이 노드의 STOMP 구독 수
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong skippedReplica = new AtomicLong();
+
+    public void publish(Collection<StockDTO> batch) {
+        if (relayEnabled && redisQuoteStore.isReplica()) {
+            skippedReplica.addAndGet(batch.size());
+            return;
+        }
+        for (StockDTO stockData : batch) {
+            if (!relayEnabled && !localSubscriberCounts.containsKey(stockData.getStockCode())) {
+                continue;
+            }
+            messagingTemplate.convertAndSend(TOPIC_PREFIX + stockData.getStockCode(), stockData);
+            published.incrementAndGet();
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String stockCode = toStockCode(accessor.getDestination());
+        if (stockCode == null || accessor.getSessionId() == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        Map<String, String> subscriptions = sessionSubscriptions.computeIfAbsent(accessor.getSessionId(), id -> new ConcurrentHashMap<>());
+        if (subscriptions.putIfAbsent(accessor.getSubscriptionId(), stockCode) == null) {
+            acquire(stockCode);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Map<String, String> subscriptions = sessionSubscriptions.get(accessor.getSessionId());
+        if (subscriptions == null || accessor.getSubscriptionId() == null) {
+            return;
+        }
+        String stockCode = subscriptions.remove(accessor.getSubscriptionId());
+        if (stockCode != null) {
+            release(stockCode);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, String> subscriptions = sessionSubscriptions.remove(event.getSessionId());
+        if (subscriptions != null) {
+            subscriptions.values().forEach(this::release);
+        }
+    }
+
+    public Map<String, Long> getMetrics() {
+        return Map.of(
+                "stompPublished", published.get(),
+                "stompSkippedReplica", skippedReplica.get(),
+                "stompSessions", (long) sessionSubscriptions.size());
+    }
+
+    private void acquire(String stockCode) {
+        localSubscriberCounts.merge(stockCode, 1, Integer::sum);
+        subscriptionRegistry.acquire(stockCode);
+        logger.debug("STOMP subscription added for {}", stockCode);
+    }
+
+    private void release(String stockCode) {
+        localSubscriberCounts.computeIfPresent(stockCode, (code, count) -> count > 1 ? count - 1 : null);
+        subscriptionRegistry.release(stockCode);
+    }
+
+    private String toStockCode(String destination) {
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return null;
+        }
+        String stockCode = destination.substring(TOPIC_PREFIX.length());
+        return stockCode.isEmpty() ? null : stockCode;
+    }
+}
@@ -1,51 +1,82 @@
 package com.kb.stock.handler;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.kb.stock.dto.StockDTO;
 import com.kb.stock.service.StockService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
 import java.io.IOException;
-import java.math.BigDecimal;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 브라우저 실시간 시세 WebSocket
+ * - 종목 → 구독 세션 역색인으로 시세가 바뀐 종목을 구독한 세션에만 보낸다.
+ * - 세션마다 ConcurrentWebSocketSessionDecorator 로 감싸 여러 스레드의 동시 전송을 직렬화하고
+ *   전송 시간(send-time-limit-ms)과 대기 버퍼(send-buffer-size-limit) 한도를 둔다.
+ *   느린 세션은 overflow-strategy 에 따라 오래된 메시지를 버리거나(DROP) 연결을 끊어(TERMINATE)
+ *   다른 세션으로의 전송이 밀리지 않게 한다.
+ * - 핸드셰이크에서 kb-quote.bin.v1 서브프로토콜을 협상한 세션은 JSON 대신
+ *   StockQuoteFrameEncoder 의 바이너리 델타 프레임을 받는다. 구독 요청은 그대로 JSON 텍스트로 보낸다.
+ */
 @Component
-public class StockWebSocketHandler extends TextWebSocketHandler {
+public class StockWebSocketHandler extends TextWebSocketHandler implements SubProtocolCapable {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule()); // 캐시 시세의 lastUpdated
     private final StockService stockService;
-    private final Map<WebSocketSession, Set<String>> sessionSubscriptions = new ConcurrentHashMap<>();
     private static final Logger logger = LoggerFactory.getLogger(StockWebSocketHandler.class);
 
-    // 10개의 주식 코드 (구독 시 사용할 기본 주식 목록)
-    private final List<String> stockCodes = Arrays.asList("035720", "068270", "035420", "000660", "373220", "005380", "005930", "055550", "000270", "105560");
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();             // 세션 ID → 전송용 세션
+    private final Map<String, Set<String>> sessionSubscriptions = new ConcurrentHashMap<>();      // 세션 ID → 구독 종목
+    private final Map<String, Set<WebSocketSession>> stockSubscribers = new ConcurrentHashMap<>(); // 종목 → 구독 세션
+    private final Map<String, StockQuoteFrameEncoder.Session> binarySessions = new ConcurrentHashMap<>(); // 세션 ID → 바이너리 인코딩 상태
+
+    @Value("${stock.ws.send-time-limit-ms:5000}")
+    private int sendTimeLimitMs;
+
+    @Value("${stock.ws.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${stock.ws.overflow-strategy:DROP}")
+    private ConcurrentWebSocketSessionDecorator.OverflowStrategy overflowStrategy;
 
     @Autowired
     public StockWebSocketHandler(StockService stockService) {
         this.stockService = stockService;
         this.stockService.setWebSocketHandler(this);
+    }
 
-        // 주기적으로 테스트 데이터를 보내기 위한 타이머 설정 (5초마다 데이터 전송)
-        Timer timer = new Timer(true); // 데몬 쓰레드로 실행
-        timer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                sendTestStockData();  // 주기적으로 테스트 데이터 전송
-            }
-        }, 0, 5000);  // 즉시 실행 시작, 5초마다 반복
+    @Override
+    public List<String> getSubProtocols() {
+        return Collections.singletonList(StockQuoteFrameEncoder.SUBPROTOCOL);
     }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
-        sessionSubscriptions.put(session, new HashSet<>());
+        boolean binary = StockQuoteFrameEncoder.SUBPROTOCOL.equals(session.getAcceptedProtocol());
+        // 델타 프레임은 하나라도 버리면 클라이언트 값이 어긋나므로 바이너리 세션은 버리지 않고 끊는다
+        ConcurrentWebSocketSessionDecorator.OverflowStrategy strategy =
+                binary ? ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE : overflowStrategy;
+        WebSocketSession outbound = new ConcurrentWebSocketSessionDecorator(session, sendTimeLimitMs, sendBufferSizeLimit, strategy);
+        if (binary) {
+            binarySessions.put(session.getId(), new StockQuoteFrameEncoder.Session());
+        }
+        sessions.put(session.getId(), outbound);
+        sessionSubscriptions.put(session.getId(), ConcurrentHashMap.newKeySet());
     }
 
     @Override
@@ -65,94 +96,193 @@ public class StockWebSocketHandler extends TextWebSocketHandler {
     }
 
     private void subscribeStock(WebSocketSession session, String stockCode) {
-        sessionSubscriptions.get(session).add(stockCode);
-        stockService.addSubscription(stockCode);
-        sendInitialStockData(session, stockCode);
+        WebSocketSession outbound = sessions.get(session.getId());
+        Set<String> subscriptions = sessionSubscriptions.get(session.getId());
+        if (outbound == null || subscriptions == null || stockCode == null) {
+            return;
+        }
+        // 같은 세션이 같은 종목을 다시 구독해도 구독자 수는 한 번만 센다
+        if (subscriptions.add(stockCode)) {
+            stockSubscribers.computeIfAbsent(stockCode, k -> ConcurrentHashMap.newKeySet()).add(outbound);
+            stockService.addSubscription(stockCode);
+        }
+        sendInitialStockData(outbound, stockCode);
     }
 
     private void unsubscribeStock(WebSocketSession session, String stockCode) {
-        sessionSubscriptions.get(session).remove(stockCode);
-        stockService.removeSubscription(stockCode);
+        WebSocketSession outbound = sessions.get(session.getId());
+        Set<String> subscriptions = sessionSubscriptions.get(session.getId());
+        if (outbound == null || subscriptions == null || stockCode == null) {
+            return;
+        }
+        if (subscriptions.remove(stockCode)) {
+            removeSubscriber(stockCode, outbound);
+            stockService.removeSubscription(stockCode);
+            StockQuoteFrameEncoder.Session binarySession = binarySessions.get(session.getId());
+            if (binarySession != null) {
+                synchronized (binarySession) {
+                    binarySession.forget(stockCode);
+                }
+            }
+        }
     }
 
-    private void sendInitialStockData(WebSocketSession session, String stockCode) {
+    private void removeSubscriber(String stockCode, WebSocketSession outbound) {
+        stockSubscribers.computeIfPresent(stockCode, (code, subscribers) -> {
+            subscribers.remove(outbound);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private void sendInitialStockData(WebSocketSession outbound, String stockCode) {
         try {
-            StockDTO stockData = stockService.getStockData(stockCode);
-            if (stockData != null) {
+            StockDTO stockData = stockService.getCachedStockData(stockCode);
+            if (stockData != null && binarySessions.containsKey(outbound.getId())) {
+                deliverBinary(outbound, Collections.singletonList(stockData));
+            } else if (stockData != null) {
                 String jsonStockData = objectMapper.writeValueAsString(stockData);
-                session.sendMessage(new TextMessage(jsonStockData));
+                deliver(outbound, new TextMessage(jsonStockData));
             }
         } catch (IOException e) {
-            e.printStackTrace();
+            logger.error("초기 주식 데이터 전송 중 오류 발생: {}", stockCode, e);
         }
     }
 
-    // 테스트 데이터를 주기적으로 전송하는 메서드
-    // 테스트 데이터를 주기적으로 전송하는 메서드
-    public void sendTestStockData() {
-        for (String stockCode : stockCodes) {
-            double testCurrentPrice = 95000 + Math.random() * 1000;  // 임의의 주가 생성
-            double testPriceChange = testCurrentPrice - 94000;
-            double testChangeRate = (testPriceChange / 94000) * 100;
-
-            StockDTO stockData = new StockDTO();
-            stockData.setStockCode(stockCode);
-            stockData.setCurrentPrice(new BigDecimal(testCurrentPrice));
-            stockData.setPriceChange(new BigDecimal(testPriceChange));
-            stockData.setPriceChangePct(new BigDecimal(testChangeRate));
-
-            logger.info("Sending test stock data: {}", stockData);
-
-            // 구독된 모든 세션에 테스트 데이터 전송
-            for (Map.Entry<WebSocketSession, Set<String>> entry : sessionSubscriptions.entrySet()) {
-                WebSocketSession session = entry.getKey();
-                Set<String> subscriptions = entry.getValue();
-
-                if (session.isOpen() && subscriptions.contains(stockCode)) {
-                    try {
-                        String jsonStockData = objectMapper.writeValueAsString(stockData);
-                        session.sendMessage(new TextMessage(jsonStockData));
-                        logger.info("주식 데이터 전송 완료: {}", jsonStockData);
-                    } catch (IOException e) {
-                        logger.error("주식 데이터 전송 중 오류 발생", e);
-                    }
-                } else {
-                    logger.warn("WebSocket 세션이 열려 있지 않거나 주식 코드가 구독되지 않음: {}", stockCode);
-                }
-            }
-        }
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) throws Exception {
+        logger.warn("WebSocket transport error on session {}: {}", session.getId(), exception.getMessage());
     }
 
-
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) throws Exception {
-        Set<String> subscriptions = sessionSubscriptions.remove(session);
+        WebSocketSession outbound = sessions.remove(session.getId());
+        binarySessions.remove(session.getId());
+        Set<String> subscriptions = sessionSubscriptions.remove(session.getId());
         if (subscriptions != null) {
             for (String stockCode : subscriptions) {
+                if (outbound != null) {
+                    removeSubscriber(stockCode, outbound);
+                }
                 stockService.removeSubscription(stockCode);
             }
         }
     }
+
+    // 구독 세션이 있는 종목만 한 번 직렬화해서 구독 세션에만 전송
     public void sendStockData(String stockCode, StockDTO stockData) {
-        String jsonStockData;
-        try {
-            jsonStockData = objectMapper.writeValueAsString(stockData);
-            logger.info("Sending stock data: {}", jsonStockData);
-        } catch (IOException e) {
-            e.printStackTrace();
+        Set<WebSocketSession> subscribers = stockSubscribers.get(stockCode);
+        if (subscribers == null || subscribers.isEmpty()) {
             return;
         }
 
-        for (Map.Entry<WebSocketSession, Set<String>> entry : sessionSubscriptions.entrySet()) {
-            WebSocketSession session = entry.getKey();
-            Set<String> subscriptions = entry.getValue();
-            if (session.isOpen() && subscriptions.contains(stockCode)) {
+        TextMessage message = null;
+        for (WebSocketSession outbound : subscribers) {
+            if (binarySessions.containsKey(outbound.getId())) {
+                deliverBinary(outbound, Collections.singletonList(stockData));
+                continue;
+            }
+            if (message == null) {
                 try {
-                    session.sendMessage(new TextMessage(jsonStockData));
+                    message = new TextMessage(objectMapper.writeValueAsString(stockData));
                 } catch (IOException e) {
-                    e.printStackTrace();
+                    logger.error("주식 데이터 직렬화 중 오류 발생: {}", stockCode, e);
+                    return;
                 }
             }
+            deliver(outbound, message);
+        }
+    }
+
+    /**
+     * 여러 종목 시세를 세션별로 모아 JSON 배열 한 프레임으로 전송 (StockBroadcastConflator 용)
+     * 종목마다 한 번만 직렬화하고 세션별 프레임은 직렬화된 문자열을 이어 붙여 만든다.
+     * 바이너리 세션은 세션마다 종목을 모아 델타 프레임 하나로 보낸다.
+     */
+    public void sendStockBatch(Collection<StockDTO> batch) {
+        Map<WebSocketSession, StringBuilder> frames = new HashMap<>();
+        Map<WebSocketSession, List<StockDTO>> binaryFrames = new HashMap<>();
+        for (StockDTO stockData : batch) {
+            Set<WebSocketSession> subscribers = stockSubscribers.get(stockData.getStockCode());
+            if (subscribers == null || subscribers.isEmpty()) {
+                continue;
+            }
+            boolean hasTextSubscribers = false;
+            for (WebSocketSession outbound : subscribers) {
+                if (binarySessions.containsKey(outbound.getId())) {
+                    binaryFrames.computeIfAbsent(outbound, k -> new ArrayList<>()).add(stockData);
+                } else {
+                    hasTextSubscribers = true;
+                }
+            }
+            if (!hasTextSubscribers) {
+                continue; // 바이너리 세션만 구독 중
+            }
+            String json;
+            try {
+                json = objectMapper.writeValueAsString(stockData);
+            } catch (IOException e) {
+                logger.error("주식 데이터 직렬화 중 오류 발생: {}", stockData.getStockCode(), e);
+                continue;
+            }
+            for (WebSocketSession outbound : subscribers) {
+                if (binarySessions.containsKey(outbound.getId())) {
+                    continue;
+                }
+                StringBuilder frame = frames.get(outbound);
+                if (frame == null) {
+                    frames.put(outbound, new StringBuilder(json.length() + 2).append('[').append(json));
+                } else {
+                    frame.append(',').append(json);
+                }
+            }
+        }
+        for (Map.Entry<WebSocketSession, StringBuilder> entry : frames.entrySet()) {
+            deliver(entry.getKey(), new TextMessage(entry.getValue().append(']').toString()));
+        }
+        for (Map.Entry<WebSocketSession, List<StockDTO>> entry : binaryFrames.entrySet()) {
+            deliverBinary(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * 인코딩 상태 갱신과 전송 순서가 같아야 하므로 세션 상태를 잡은 채 인코딩하고 큐에 넣는다
+     * 인코딩이 기준값을 이미 올렸으므로 보내지 못한 프레임이 있으면 클라이언트 값이 어긋난다. 그때는 연결을 끊는다.
+     */
+    private void deliverBinary(WebSocketSession outbound, Collection<StockDTO> stocks) {
+        StockQuoteFrameEncoder.Session binarySession = binarySessions.get(outbound.getId());
+        if (binarySession == null) {
+            return;
+        }
+        synchronized (binarySession) {
+            byte[] frame = StockQuoteFrameEncoder.encode(binarySession, stocks);
+            if (frame != null && !deliver(outbound, new BinaryMessage(frame))) {
+                closeQuietly(outbound);
+            }
+        }
+    }
+
+    // 보냈으면(전송 큐에 넣었으면) true
+    private boolean deliver(WebSocketSession outbound, WebSocketMessage<?> message) {
+        if (!outbound.isOpen()) {
+            return false;
+        }
+        try {
+            outbound.sendMessage(message);
+            return true;
+        } catch (SessionLimitExceededException e) {
+            // 데코레이터가 세션을 닫으며, 정리는 afterConnectionClosed 에서 한다
+            logger.warn("Closing slow WebSocket session {}: {}", outbound.getId(), e.getMessage());
+        } catch (IOException | IllegalStateException e) {
+            logger.warn("주식 데이터 전송 중 오류 발생 (세션 {}): {}", outbound.getId(), e.getMessage());
+        }
+        return false;
+    }
+
+    private void closeQuietly(WebSocketSession outbound) {
+        try {
+            outbound.close(CloseStatus.SERVER_ERROR);
+        } catch (IOException e) {
+            logger.debug("Error closing WebSocket session {}: {}", outbound.getId(), e.getMessage());
         }
     }
 }
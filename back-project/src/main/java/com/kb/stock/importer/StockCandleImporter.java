@@ -0,0 +1,364 @@
+package com.kb.stock.importer;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 과거 일봉 CSV 일괄 적재 (stocks_candle)
+ * 종목마다 {종목코드}.csv 파일 하나 (FinanceDataReader DataReader(...).to_csv() 형식:
+ * Date,Open,High,Low,Close,Volume[,Change]). 파일을 스트리밍으로 읽어 날짜별로 중복을 걸러(뒤에 나온 행 우선)
+ * JDBC 배치 upsert 로 쓴다. 종목(파일) 단위로 여러 스레드가 나눠 처리하고, 파일 하나가 한 트랜잭션이다.
+ *
+ * 끝난 파일은 디렉터리의 체크포인트 파일(.candle-import.checkpoint)에 파일 이름/크기/수정 시각으로 남긴다.
+ * 중간에 끊겨도 다시 실행하면 바뀌지 않은 완료 파일은 건너뛴다 (--fresh 면 처음부터).
+ *
+ * 실행: ./gradlew importCandles -PimportArgs="--dir=/data/candles-csv --threads=8"
+ * 옵션: --dir (필수), --config (기본 classpath application.properties), --threads, --batch-size, --fresh
+ *
+ * 서버가 로컬 일봉 저장소(stock.candle.store.dir)를 쓰면 적재한 종목의 저장소 파일을 지운다.
+ * 실행 중인 서버는 이미 연 파일과 차트 캐시를 들고 있으므로 적재 후 POST /api/stockcandle/invalidate 를 호출한다
+ * (호출하지 않아도 다음 날 첫 조회 때 DB 와 건수/처음·마지막 거래일을 비교해 다시 만든다).
+ */
+public class StockCandleImporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockCandleImporter.class);
+
+    static final String CHECKPOINT_FILE = ".candle-import.checkpoint";
+
+    private static final String UPSERT_SQL = "INSERT INTO stocks_candle (stock_code, stock_candle_day, stock_candle_open,"
+            + " stock_candle_close, stock_candle_high, stock_candle_low, stock_candle_volume)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE"
+            + " stock_candle_open = VALUES(stock_candle_open),"
+            + " stock_candle_close = VALUES(stock_candle_close),"
+            + " stock_candle_high = VALUES(stock_candle_high),"
+            + " stock_candle_low = VALUES(stock_candle_low),"
+            + " stock_candle_volume = VALUES(stock_candle_volume)";
+
+    private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .setIgnoreHeaderCase(true)
+            .setIgnoreEmptyLines(true)
+            .setTrim(true)
+            .build();
+
+    private final DataSource dataSource;
+    private final int threads;
+    private final int batchSize;
+    private final Path storeDirectory;
+
+    private final AtomicInteger filesImported = new AtomicInteger();
+    private final AtomicInteger filesSkipped = new AtomicInteger();
+    private final AtomicInteger filesFailed = new AtomicInteger();
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsDuplicated = new AtomicLong();
+    private final AtomicLong rowsInvalid = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+
+    public StockCandleImporter(DataSource dataSource, int threads, int batchSize, Path storeDirectory) {
+        this.dataSource = dataSource;
+        this.threads = Math.max(1, threads);
+        this.batchSize = Math.max(1, batchSize);
+        this.storeDirectory = storeDirectory;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        if (!options.containsKey("dir")) {
+            System.err.println("Usage: StockCandleImporter --dir=<csv directory> [--config=<properties>] [--threads=N] [--batch-size=N] [--fresh]");
+            System.exit(2);
+        }
+        Properties properties = loadProperties(options.get("config"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                properties.getProperty("stock.candle.import.threads", "4")));
+        int batchSize = Integer.parseInt(options.getOrDefault("batch-size",
+                properties.getProperty("stock.candle.import.batch-size", "1000")));
+        String storeDir = Boolean.parseBoolean(properties.getProperty("stock.candle.store.enabled", "false"))
+                ? properties.getProperty("stock.candle.store.dir", "data/candles") : null;
+
+        HikariConfig config = new HikariConfig();
+        config.setDriverClassName(properties.getProperty("jdbc.driver"));
+        config.setJdbcUrl(batchRewriteUrl(properties.getProperty("jdbc.url")));
+        config.setUsername(properties.getProperty("jdbc.username"));
+        config.setPassword(properties.getProperty("jdbc.password"));
+        config.setMaximumPoolSize(Math.max(1, threads));
+        config.setAutoCommit(false);
+
+        try (HikariDataSource dataSource = new HikariDataSource(config)) {
+            StockCandleImporter importer = new StockCandleImporter(dataSource, threads, batchSize,
+                    storeDir != null ? Paths.get(storeDir) : null);
+            boolean ok = importer.importDirectory(Paths.get(options.get("dir")), options.containsKey("fresh"));
+            System.exit(ok ? 0 : 1);
+        }
+    }
+
+    /**
+     * 디렉터리의 *.csv 를 모두 적재
+     * 실패한 파일이 없으면 true (실패한 파일은 체크포인트에 남지 않아 다음 실행 때 다시 시도한다)
+     */
+    public boolean importDirectory(Path directory, boolean fresh) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Path checkpointPath = directory.resolve(CHECKPOINT_FILE);
+        if (fresh) {
+            Files.deleteIfExists(checkpointPath);
+        }
+        Set<String> completed = readCheckpoint(checkpointPath);
+
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> listing = Files.list(directory)) {
+            listing.filter(path -> path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv"))
+                    .sorted()
+                    .forEach(files::add);
+        }
+        logger.info("Importing {} candle files from {} with {} threads ({} already done)",
+                files.size(), directory, threads, completed.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (BufferedWriter checkpoint = Files.newBufferedWriter(checkpointPath, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            List<Future<?>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                String entry = checkpointEntry(file);
+                if (completed.contains(entry)) {
+                    filesSkipped.incrementAndGet();
+                    continue;
+                }
+                futures.add(executor.submit(() -> {
+                    if (importFile(file)) {
+                        synchronized (checkpoint) {
+                            checkpoint.write(entry);
+                            checkpoint.newLine();
+                            checkpoint.flush();
+                        }
+                        int done = filesImported.incrementAndGet();
+                        if (done % 100 == 0) {
+                            logger.info("Imported {} files, {} rows", done, rowsWritten.get());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // 체크포인트 기록 실패: 그 파일은 다음 실행 때 다시 적재 (upsert 라 중복 걱정 없음)
+                    logger.error("Error recording checkpoint", e.getCause());
+                    filesFailed.incrementAndGet();
+                }
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Candle import finished in {} ms: files imported={}, skipped={}, failed={}; rows read={}, duplicates={}, invalid={}, written={}",
+                elapsedMs, filesImported.get(), filesSkipped.get(), filesFailed.get(),
+                rowsRead.get(), rowsDuplicated.get(), rowsInvalid.get(), rowsWritten.get());
+        return filesFailed.get() == 0;
+    }
+
+    // 파일 하나 적재 (한 트랜잭션, 실패하면 롤백)
+    boolean importFile(Path file) {
+        String fileName = file.getFileName().toString();
+        String stockCode = fileName.substring(0, fileName.length() - ".csv".length());
+        if (!stockCode.matches("[0-9A-Za-z]+")) {
+            logger.warn("Skipping {}: file name is not a stock code", file);
+            filesFailed.incrementAndGet();
+            return false;
+        }
+
+        TreeMap<LocalDate, double[]> candles;
+        try {
+            candles = readCandles(file);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error reading {}: {}", file, e.getMessage());
+            filesFailed.incrementAndGet();
+            return false;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(UPSERT_SQL)) {
+                int pending = 0;
+                for (Map.Entry<LocalDate, double[]> candle : candles.entrySet()) {
+                    double[] v = candle.getValue();
+                    statement.setString(1, stockCode);
+                    statement.setDate(2, Date.valueOf(candle.getKey()));
+                    statement.setFloat(3, (float) v[0]);
+                    statement.setFloat(4, (float) v[3]);
+                    statement.setFloat(5, (float) v[1]);
+                    statement.setFloat(6, (float) v[2]);
+                    statement.setLong(7, (long) v[4]);
+                    statement.addBatch();
+                    if (++pending == batchSize) {
+                        statement.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            logger.error("Error writing candles for {}: {}", stockCode, e.getMessage());
+            filesFailed.incrementAndGet();
+            return false;
+        }
+        rowsWritten.addAndGet(candles.size());
+        dropStoreFile(stockCode);
+        return true;
+    }
+
+    /**
+     * CSV 한 파일을 날짜별 [시가, 고가, 저가, 종가, 거래량] 으로 (같은 날짜는 뒤의 행 우선)
+     * 종가가 없거나 0 이하인 행은 버리고, 거래정지일처럼 시가/고가/저가가 0 이면 종가로 채운다.
+     */
+    TreeMap<LocalDate, double[]> readCandles(Path file) throws IOException {
+        TreeMap<LocalDate, double[]> candles = new TreeMap<>();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+             CSVParser parser = CSV_FORMAT.parse(reader)) {
+            for (CSVRecord record : parser) {
+                rowsRead.incrementAndGet();
+                LocalDate day;
+                double close;
+                double[] values;
+                try {
+                    String date = record.get("Date");
+                    day = LocalDate.parse(date.length() > 10 ? date.substring(0, 10) : date);
+                    close = parse(record.get("Close"));
+                    values = new double[]{
+                            parse(record.get("Open")), parse(record.get("High")), parse(record.get("Low")),
+                            close, parse(record.get("Volume"))};
+                } catch (RuntimeException e) {
+                    rowsInvalid.incrementAndGet();
+                    continue;
+                }
+                if (!(close > 0)) {
+                    rowsInvalid.incrementAndGet();
+                    continue;
+                }
+                for (int i = 0; i < 3; i++) {
+                    if (!(values[i] > 0)) {
+                        values[i] = close;
+                    }
+                }
+                if (!(values[4] >= 0)) {
+                    values[4] = 0;
+                }
+                if (candles.put(day, values) != null) {
+                    rowsDuplicated.incrementAndGet();
+                }
+            }
+        }
+        return candles;
+    }
+
+    // 서버의 로컬 일봉 저장소 파일({code}.{세대}.candles 모두)은 과거 구간이 바뀌었으므로 지워서 다음 조회 때 DB 에서 다시 만들게 한다
+    // 서버가 매핑 중이라 지우지 못한 파일은 서버가 DB 와 건수/기간을 비교해 다시 만든다
+    private void dropStoreFile(String stockCode) {
+        if (storeDirectory == null || !Files.isDirectory(storeDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(storeDirectory, stockCode + ".*candles")) {
+            for (Path path : paths) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            logger.warn("Error deleting candle store file for {}: {}", stockCode, e.getMessage());
+        }
+    }
+
+    private static double parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return Double.NaN;
+        }
+        return Double.parseDouble(value);
+    }
+
+    private static String checkpointEntry(Path file) throws IOException {
+        return file.getFileName() + "\t" + Files.size(file) + "\t" + Files.getLastModifiedTime(file).toMillis();
+    }
+
+    private static Set<String> readCheckpoint(Path checkpointPath) throws IOException {
+        if (!Files.exists(checkpointPath)) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(Files.readAllLines(checkpointPath, StandardCharsets.UTF_8));
+    }
+
+    // MySQL 드라이버가 배치를 여러 행 INSERT 한 문장으로 묶어 보내도록
+    private static String batchRewriteUrl(String url) {
+        if (url == null || !url.startsWith("jdbc:mysql:") || url.contains("rewriteBatchedStatements")) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+    }
+
+    private static Properties loadProperties(String location) throws IOException {
+        Properties properties = new Properties();
+        if (location != null) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(location), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            return properties;
+        }
+        try (InputStream in = StockCandleImporter.class.getResourceAsStream("/application.properties")) {
+            if (in == null) {
+                throw new IOException("application.properties not found on classpath (use --config)");
+            }
+            properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+        return properties;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -1,9 +1,12 @@
 package com.kb.stock.mapper;
 
 import com.kb.stock.dto.StockCandleDTO;
+import com.kb.stock.dto.StockCandleSummaryDTO;
+import com.kb.stock.dto.StockMinuteCandleDTO;
 import org.apache.ibatis.annotations.*;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -21,6 +24,15 @@ public interface StockCandleMapper {
                                       @Param("startDate") LocalDate startDate,
                                       @Param("endDate") LocalDate endDate);
 
+    @Select({
+            "SELECT COUNT(*) AS candle_count, MIN(stock_candle_day) AS first_day, MAX(stock_candle_day) AS last_day",
+            "FROM stocks_candle",
+            "WHERE stock_code = #{stockCode}",
+            "AND stock_candle_day <= #{endDate}"
+    })
+    StockCandleSummaryDTO getCandleSummary(@Param("stockCode") String stockCode,
+                                           @Param("endDate") LocalDate endDate);
+
     @Insert({
             "INSERT INTO stocks_candle (stock_code, stock_candle_day, stock_candle_open, stock_candle_close,",
             "stock_candle_high, stock_candle_low, stock_candle_volume)",
@@ -34,4 +46,64 @@ public interface StockCandleMapper {
             "stock_candle_volume = VALUES(stock_candle_volume)"
     })
     void upsertStockCandle(StockCandleDTO stockCandleDTO);
+
+    // 여러 종목의 일봉을 하나의 INSERT ... ON DUPLICATE KEY UPDATE 문으로 저장
+    @Insert({
+            "<script>",
+            "INSERT INTO stocks_candle (stock_code, stock_candle_day, stock_candle_open, stock_candle_close,",
+            "stock_candle_high, stock_candle_low, stock_candle_volume)",
+            "VALUES",
+            "<foreach collection='candles' item='c' separator=','>",
+            "(#{c.stockCode}, #{c.stockCandleDay}, #{c.stockCandleOpen}, #{c.stockCandleClose},",
+            "#{c.stockCandleHigh}, #{c.stockCandleLow}, #{c.stockCandleVolume})",
+            "</foreach>",
+            "ON DUPLICATE KEY UPDATE",
+            "stock_candle_open = VALUES(stock_candle_open),",
+            "stock_candle_close = VALUES(stock_candle_close),",
+            "stock_candle_high = VALUES(stock_candle_high),",
+            "stock_candle_low = VALUES(stock_candle_low),",
+            "stock_candle_volume = VALUES(stock_candle_volume)",
+            "</script>"
+    })
+    void upsertStockCandles(@Param("candles") List<StockCandleDTO> candles);
+
+    @Select({
+            "SELECT stock_code, stock_candle_time, stock_candle_open, stock_candle_close,",
+            "stock_candle_high, stock_candle_low, stock_candle_volume",
+            "FROM stocks_candle_minute",
+            "WHERE stock_code = #{stockCode}",
+            "AND stock_candle_time >= #{from} AND stock_candle_time < #{to}",
+            "ORDER BY stock_candle_time ASC"
+    })
+    List<StockMinuteCandleDTO> getMinuteCandles(@Param("stockCode") String stockCode,
+                                                @Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to);
+
+    // 여러 종목의 분봉을 하나의 INSERT ... ON DUPLICATE KEY UPDATE 문으로 저장
+    @Insert({
+            "<script>",
+            "INSERT INTO stocks_candle_minute (stock_code, stock_candle_time, stock_candle_open, stock_candle_close,",
+            "stock_candle_high, stock_candle_low, stock_candle_volume)",
+            "VALUES",
+            "<foreach collection='candles' item='c' separator=','>",
+            "(#{c.stockCode}, #{c.stockCandleTime}, #{c.stockCandleOpen}, #{c.stockCandleClose},",
+            "#{c.stockCandleHigh}, #{c.stockCandleLow}, #{c.stockCandleVolume})",
+            "</foreach>",
+            "ON DUPLICATE KEY UPDATE",
+            "stock_candle_open = VALUES(stock_candle_open),",
+            "stock_candle_close = VALUES(stock_candle_close),",
+            "stock_candle_high = VALUES(stock_candle_high),",
+            "stock_candle_low = VALUES(stock_candle_low),",
+            "stock_candle_volume = VALUES(stock_candle_volume)",
+            "</script>"
+    })
+    void upsertMinuteCandles(@Param("candles") List<StockMinuteCandleDTO> candles);
+
+    // 보관 기간이 지난 분봉을 limit 행까지 삭제하고 지운 행 수를 돌려준다
+    @Delete({
+            "DELETE FROM stocks_candle_minute",
+            "WHERE stock_candle_time < #{before}",
+            "LIMIT #{limit}"
+    })
+    int deleteMinuteCandlesBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
 }
@@ -3,6 +3,7 @@ package com.kb.stock.mapper;
 import com.kb.stock.dto.StockDTO;
 import org.apache.ibatis.annotations.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Mapper
@@ -20,6 +21,13 @@ public interface StockMapper {
     @Select("SELECT stock_code FROM stock_codes")
     List<String> selectAllStockCodes();
 
+    // 종목 코드 → 종목명 사전 적재용
+    @Select("SELECT stock_code, stock_name FROM stock_codes")
+    List<StockDTO> selectStockCodeNames();
+
+    @Select("SELECT MAX(last_updated) FROM stock_codes")
+    LocalDateTime selectStockCodesLastUpdated();
+
     @Insert({
             "INSERT INTO stock (stock_code, stock_name, current_price, price_change, price_change_pct, high_price, low_price, opening_price, volume, industry, hts_avls, w52_hgpr, w52_lwpr, acml_tr_pbmn, last_updated)",
             "VALUES (#{stockCode}, #{stockName}, #{currentPrice}, #{priceChange}, #{priceChangePct}, #{highPrice}, #{lowPrice}, #{openingPrice}, #{volume}, #{industry}, #{htsAvls}, #{w52Hgpr}, #{w52Lwpr}, #{acmlTrPbmn}, NOW())",
@@ -41,6 +49,33 @@ public interface StockMapper {
     })
     void upsertStock(StockDTO stock);
 
+    // 여러 종목을 하나의 INSERT ... ON DUPLICATE KEY UPDATE 문으로 저장
+    @Insert({
+            "<script>",
+            "INSERT INTO stock (stock_code, stock_name, current_price, price_change, price_change_pct, high_price, low_price, opening_price, volume, industry, hts_avls, w52_hgpr, w52_lwpr, acml_tr_pbmn, last_updated)",
+            "VALUES",
+            "<foreach collection='stocks' item='s' separator=','>",
+            "(#{s.stockCode}, #{s.stockName}, #{s.currentPrice}, #{s.priceChange}, #{s.priceChangePct}, #{s.highPrice}, #{s.lowPrice}, #{s.openingPrice}, #{s.volume}, #{s.industry}, #{s.htsAvls}, #{s.w52Hgpr}, #{s.w52Lwpr}, #{s.acmlTrPbmn}, NOW())",
+            "</foreach>",
+            "ON DUPLICATE KEY UPDATE",
+            "stock_name = VALUES(stock_name),",
+            "current_price = VALUES(current_price),",
+            "price_change = VALUES(price_change),",
+            "price_change_pct = VALUES(price_change_pct),",
+            "high_price = VALUES(high_price),",
+            "low_price = VALUES(low_price),",
+            "opening_price = VALUES(opening_price),",
+            "volume = VALUES(volume),",
+            "industry = VALUES(industry),",
+            "hts_avls = VALUES(hts_avls),",
+            "w52_hgpr = VALUES(w52_hgpr),",
+            "w52_lwpr = VALUES(w52_lwpr),",
+            "acml_tr_pbmn = VALUES(acml_tr_pbmn),",
+            "last_updated = NOW()",
+            "</script>"
+    })
+    void upsertStocks(@Param("stocks") List<StockDTO> stocks);
+
 
     @Select("SELECT * FROM stock WHERE stock_code = #{stockCode}")
     StockDTO selectStockByCode(String stockCode);
@@ -48,6 +83,10 @@ public interface StockMapper {
     @Select("SELECT stock_code FROM stock WHERE last_updated < DATE_SUB(NOW(), INTERVAL 5 MINUTE)")
     List<String> selectStaleStockCodes();
 
+    // 폴링 우선순위 계산용 (거래량, 마지막 갱신 시각)
+    @Select("SELECT stock_code, volume, last_updated FROM stock")
+    List<StockDTO> selectStockPollingStats();
+
     // 안정성 중심 종목 조회
     @Select("SELECT * FROM stock WHERE hts_avls > 30000 AND (w52_hgpr - w52_lwpr) / w52_hgpr < 0.25 AND volume > 50000")
     List<StockDTO> selectStableStocks();
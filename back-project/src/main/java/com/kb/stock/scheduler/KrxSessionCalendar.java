@@ -0,0 +1,102 @@
+package com.kb.stock.scheduler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.*;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 한국거래소(KRX) 정규장 달력
+ * 주말과 휴장일을 제외한 날의 09:00 ~ 15:30 (Asia/Seoul) 을 정규장으로 본다.
+ * 기본 휴장일은 2025~2026년분이며, 그 밖의 날짜는 krx.holidays 로 추가한다.
+ */
+@Component
+public class KrxSessionCalendar {
+
+    private static final Logger logger = LoggerFactory.getLogger(KrxSessionCalendar.class);
+
+    public static final ZoneId KRX_ZONE = ZoneId.of("Asia/Seoul");
+
+    private static final String[] DEFAULT_HOLIDAYS = {
+            // 2025
+            "2025-01-01", "2025-01-27", "2025-01-28", "2025-01-29", "2025-01-30", "2025-03-03",
+            "2025-05-01", "2025-05-05", "2025-05-06", "2025-06-03", "2025-06-06", "2025-08-15",
+            "2025-10-03", "2025-10-06", "2025-10-07", "2025-10-08", "2025-10-09", "2025-12-25", "2025-12-31",
+            // 2026
+            "2026-01-01", "2026-02-16", "2026-02-17", "2026-02-18", "2026-03-02", "2026-05-01",
+            "2026-05-05", "2026-05-25", "2026-06-03", "2026-08-17", "2026-09-24", "2026-09-25",
+            "2026-10-05", "2026-10-09", "2026-12-25", "2026-12-31"
+    };
+
+    @Value("${krx.holidays:}")
+    private String extraHolidays;
+
+    @Value("${krx.session.open:09:00}")
+    private String sessionOpen;
+
+    @Value("${krx.session.close:15:30}")
+    private String sessionClose;
+
+    @Value("${krx.session.warmup:08:30}")
+    private String warmup;
+
+    private final Set<LocalDate> holidays = new HashSet<>();
+    private LocalTime openTime;
+    private LocalTime closeTime;
+    private LocalTime warmupTime;
+
+    @PostConstruct
+    public void init() {
+        for (String holiday : DEFAULT_HOLIDAYS) {
+            holidays.add(LocalDate.parse(holiday));
+        }
+        for (String holiday : extraHolidays.split(",")) {
+            if (!holiday.isBlank()) {
+                holidays.add(LocalDate.parse(holiday.trim()));
+            }
+        }
+        openTime = LocalTime.parse(sessionOpen);
+        closeTime = LocalTime.parse(sessionClose);
+        warmupTime = LocalTime.parse(warmup);
+        logger.info("KRX calendar: session {}-{}, warm-up {}, {} holidays", openTime, closeTime, warmupTime, holidays.size());
+    }
+
+    public LocalDateTime now() {
+        return LocalDateTime.now(KRX_ZONE);
+    }
+
+    public boolean isTradingDay(LocalDate date) {
+        DayOfWeek dayOfWeek = date.getDayOfWeek();
+        return dayOfWeek != DayOfWeek.SATURDAY && dayOfWeek != DayOfWeek.SUNDAY && !holidays.contains(date);
+    }
+
+    // 정규장 시간인지 (개장 시각 포함, 마감 시각 포함)
+    public boolean isSessionOpen(LocalDateTime dateTime) {
+        LocalTime time = dateTime.toLocalTime();
+        return isTradingDay(dateTime.toLocalDate()) && !time.isBefore(openTime) && !time.isAfter(closeTime);
+    }
+
+    // 장 시작 전 워밍업 구간인지 (워밍업 시각 ~ 개장 전)
+    public boolean isWarmupWindow(LocalDateTime dateTime) {
+        LocalTime time = dateTime.toLocalTime();
+        return isTradingDay(dateTime.toLocalDate()) && !time.isBefore(warmupTime) && time.isBefore(openTime);
+    }
+
+    // 장 마감 이후인지 (거래일 기준)
+    public boolean isAfterClose(LocalDateTime dateTime) {
+        return isTradingDay(dateTime.toLocalDate()) && dateTime.toLocalTime().isAfter(closeTime);
+    }
+
+    public LocalTime getOpenTime() {
+        return openTime;
+    }
+
+    public LocalTime getCloseTime() {
+        return closeTime;
+    }
+}
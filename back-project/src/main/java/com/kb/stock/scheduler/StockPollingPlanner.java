@@ -0,0 +1,114 @@
+package com.kb.stock.scheduler;
+
+import com.kb.stock.dto.StockDTO;
+import com.kb.stock.mapper.StockMapper;
+import com.kb.stock.service.StockQuoteFetcher;
+import com.kb.stock.service.StockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 장중 폴링 대상 선정
+ * 한 번의 스케줄 주기 동안 호출 한도 안에서 조회할 수 있는 종목 수(예산)만큼 골라낸다.
+ * 1. 사용자가 WebSocket 으로 구독 중인 종목은 항상 포함
+ * 2. 나머지는 (마지막 조회 후 경과 시간) x (1 + log10(1 + 거래량)) 점수가 높은 순
+ *    한 번도 저장되지 않은 종목이 가장 먼저 선택된다.
+ *
+ * 마지막 조회 시각은 이 노드가 계획에 넣은 시각(메모리)을 쓴다. 변경 없는 시세는 DB 저장을 건너뛰어
+ * stock.last_updated 가 멈춰 있으므로, DB 시각만 보면 방금 조회한 조용한 종목이 계속 가장 오래된 것으로 보인다.
+ * 이 노드가 아직 조회하지 않은 종목(재시작 직후 등)만 DB 의 last_updated 를 쓴다.
+ */
+@Component
+public class StockPollingPlanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockPollingPlanner.class);
+
+    private static final int TICK_SECONDS = 60;
+    private static final double BUDGET_UTILIZATION = 0.8;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockMapper stockMapper;
+
+    @Autowired
+    private StockQuoteFetcher quoteFetcher;
+
+    // 0 이면 초당 호출 한도로부터 자동 계산
+    @Value("${stock.scheduler.budget-per-tick:0}")
+    private int budgetPerTick;
+
+    // 종목별 마지막으로 폴링 계획에 넣은 시각 (epoch millis)
+    private final Map<String, Long> lastPolledMillis = new ConcurrentHashMap<>();
+
+    public List<String> plan() {
+        int budget = getBudget();
+        Set<String> subscribed = stockService.getSubscribedStocks();
+
+        List<String> plan = new ArrayList<>(budget);
+        for (String stockCode : subscribed) {
+            if (plan.size() >= budget) {
+                break;
+            }
+            plan.add(stockCode);
+        }
+
+        Map<String, StockDTO> pollingStats = new HashMap<>();
+        for (StockDTO stats : stockMapper.selectStockPollingStats()) {
+            pollingStats.put(stats.getStockCode(), stats);
+        }
+
+        long now = System.currentTimeMillis();
+        List<String> candidates = new ArrayList<>();
+        Map<String, Double> scores = new HashMap<>();
+        for (String stockCode : stockService.getAllStockCodes()) {
+            if (subscribed.contains(stockCode)) {
+                continue;
+            }
+            candidates.add(stockCode);
+            scores.put(stockCode, score(stockCode, pollingStats.get(stockCode), now));
+        }
+        candidates.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+
+        for (String stockCode : candidates) {
+            if (plan.size() >= budget) {
+                break;
+            }
+            plan.add(stockCode);
+        }
+
+        for (String stockCode : plan) {
+            lastPolledMillis.put(stockCode, now);
+        }
+        logger.info("Polling plan: {} stocks ({} subscribed, budget {})", plan.size(), Math.min(subscribed.size(), budget), budget);
+        return plan;
+    }
+
+    private double score(String stockCode, StockDTO stats, long now) {
+        Long polledAt = lastPolledMillis.get(stockCode);
+        if (polledAt == null) {
+            if (stats == null || stats.getLastUpdated() == null) {
+                return Double.MAX_VALUE;
+            }
+            polledAt = stats.getLastUpdated().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        long staleSeconds = Math.max(1, (now - polledAt) / 1000);
+        long volume = stats != null && stats.getVolume() != null ? Math.max(0, stats.getVolume()) : 0;
+        return staleSeconds * (1 + Math.log10(1 + volume));
+    }
+
+    private int getBudget() {
+        if (budgetPerTick > 0) {
+            return budgetPerTick;
+        }
+        return (int) (quoteFetcher.getRequestsPerSecond() * TICK_SECONDS * BUDGET_UTILIZATION);
+    }
+}
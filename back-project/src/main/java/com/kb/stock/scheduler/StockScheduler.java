@@ -1,5 +1,6 @@
 package com.kb.stock.scheduler;
 
+import com.kb.stock.cache.RedisQuoteStore;
 import com.kb.stock.service.StockService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -7,7 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Component
@@ -18,19 +19,45 @@ public class StockScheduler {
     @Autowired
     private StockService stockService;
 
+    @Autowired
+    private KrxSessionCalendar sessionCalendar;
+
+    @Autowired
+    private StockPollingPlanner pollingPlanner;
+
+    @Autowired
+    private RedisQuoteStore redisQuoteStore;
+
+    private volatile LocalDate warmedUpDate;   // 장 시작 전 전체 갱신을 마친 날짜 (조회가 끝난 뒤에 기록)
+    private volatile LocalDate closedDate;     // 장 마감 후 종가 갱신을 마친 날짜 (조회가 끝난 뒤에 기록)
+
     @Scheduled(cron = "0 */1 * * * *") // 매 1분마다 실행
     public void updateAllStocksScheduled() {
-        // 현재 시간을 확인하는 코드
-        LocalDateTime now = LocalDateTime.now();
-        if (now.getHour() >= 16 || now.getDayOfWeek() == DayOfWeek.SATURDAY || now.getDayOfWeek() == DayOfWeek.SUNDAY) {
-            logger.info("현재 시간 {}: 주식 스케줄러가 실행되지 않음 (장 마감 또는 주말).", now);
-            return; // 16시 이후이거나 주말이면 실행하지 않음
+        if (redisQuoteStore.isReplica()) {
+            return; // 시세는 primary 노드가 수집해 Redis 로 공유
         }
+        LocalDateTime now = sessionCalendar.now();
+        LocalDate today = now.toLocalDate();
 
-        logger.info("Starting scheduled update of all stocks at {}", now);
         try {
-            stockService.updateAllStocks();
-            logger.info("Completed scheduled update of all stocks at {}", now);
+            if (sessionCalendar.isSessionOpen(now)) {
+                // 정규장: 구독/거래량/갱신 시각 우선순위에 따라 예산만큼만 조회
+                stockService.updateStocks(pollingPlanner.plan());
+            } else if (sessionCalendar.isWarmupWindow(now) && !today.equals(warmedUpDate)) {
+                // 장 시작 전 한 번 전체 종목 갱신 (끝까지 돌지 못했으면 다음 분에 다시)
+                logger.info("Pre-open warm-up sweep at {}", now);
+                if (stockService.updateAllStocks() != null) {
+                    warmedUpDate = today;
+                }
+            } else if (sessionCalendar.isAfterClose(now) && !today.equals(closedDate)) {
+                // 장 마감 직후 한 번 전체 종목 종가 갱신 (끝까지 돌지 못했으면 다음 분에 다시)
+                logger.info("Post-close sweep at {}", now);
+                if (stockService.updateAllStocks() != null) {
+                    closedDate = today;
+                }
+            } else {
+                logger.debug("현재 시간 {}: 정규장이 아니므로 주식 스케줄러가 실행되지 않음.", now);
+            }
         } catch (Exception e) {
             logger.error("Error during scheduled update of stocks", e);
         }
@@ -2,6 +2,7 @@ package com.kb.stock.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
@@ -14,11 +15,8 @@ public class HashkeyService {
 
     private static final Logger logger = LoggerFactory.getLogger(HashkeyService.class);
 
-    @Value("${kis.api.appkey}")
-    private String appKey;
-
-    @Value("${kis.api.secretkey}")
-    private String appSecret;
+    @Autowired
+    private KisCredentialPool credentialPool;
 
     @Value("${kis.api.base-url}")
     private String baseUrl;
@@ -38,8 +36,9 @@ public class HashkeyService {
             // 헤더 설정
             HttpHeaders headers = new HttpHeaders();
             headers.set("Content-Type", "application/json; charset=utf-8");
-            headers.set("appkey", appKey);
-            headers.set("appsecret", appSecret);
+            KisCredential credential = credentialPool.primary();
+            headers.set("appkey", credential.getAppKey());
+            headers.set("appsecret", credential.getAppSecret());
 
             // 요청 보낼 데이터와 헤더
             HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
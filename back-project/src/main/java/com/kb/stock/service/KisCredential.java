@@ -0,0 +1,89 @@
+package com.kb.stock.service;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * KIS 앱키 한 쌍과 그 앱키 전용 접근 토큰, 호출 한도
+ * 앱키마다 초당 호출 한도가 따로 적용되므로 토큰과 토큰 버킷도 앱키별로 둔다.
+ */
+public class KisCredential {
+
+    private final int index;
+    private final String appKey;
+    private final String appSecret;
+    private final KisRateLimiter rateLimiter;
+
+    // 호출 한도 초과 응답을 받은 뒤 이 시각(nanoTime)까지는 다른 앱키를 우선 사용
+    private volatile long throttledUntilNanos;
+
+    // 접근 토큰과 실시간 접속키 (TokenService 가 관리, 읽기는 잠금 없이 참조만 읽는다)
+    private volatile KisToken accessToken;
+    private volatile KisToken approvalKey;
+
+    // 발급은 앱키별로 한 번에 하나만
+    private final ReentrantLock accessTokenLock = new ReentrantLock();
+    private final ReentrantLock approvalKeyLock = new ReentrantLock();
+
+    public KisCredential(int index, String appKey, String appSecret, double requestsPerSecond) {
+        this.index = index;
+        this.appKey = appKey;
+        this.appSecret = appSecret;
+        this.rateLimiter = new KisRateLimiter(requestsPerSecond, (int) Math.ceil(requestsPerSecond));
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public String getAppKey() {
+        return appKey;
+    }
+
+    public String getAppSecret() {
+        return appSecret;
+    }
+
+    public KisRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public boolean isThrottled() {
+        return throttledUntilNanos - System.nanoTime() > 0;
+    }
+
+    public void markThrottled(long millis) {
+        throttledUntilNanos = System.nanoTime() + millis * 1_000_000L;
+        rateLimiter.penalize(millis);
+    }
+
+    public KisToken getAccessToken() {
+        return accessToken;
+    }
+
+    public void setAccessToken(KisToken accessToken) {
+        this.accessToken = accessToken;
+    }
+
+    public KisToken getApprovalKey() {
+        return approvalKey;
+    }
+
+    public void setApprovalKey(KisToken approvalKey) {
+        this.approvalKey = approvalKey;
+    }
+
+    public ReentrantLock getAccessTokenLock() {
+        return accessTokenLock;
+    }
+
+    public ReentrantLock getApprovalKeyLock() {
+        return approvalKeyLock;
+    }
+
+    @Override
+    public String toString() {
+        // 앱키 전체를 로그에 남기지 않는다
+        String masked = appKey != null && appKey.length() > 4 ? appKey.substring(0, 4) + "****" : "****";
+        return "KisCredential[" + index + ", " + masked + "]";
+    }
+}
@@ -0,0 +1,100 @@
+package com.kb.stock.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * KIS 앱키 풀
+ * kis.api.appkeys=앱키1:시크릿1,앱키2:시크릿2 형식으로 여러 앱키를 등록하면
+ * 종목 코드 기준으로 앱키를 고정 배정해 앱키별 호출 한도를 합산해서 쓸 수 있다.
+ * kis.api.appkeys 가 비어 있으면 kis.api.appkey / kis.api.secretkey 한 쌍만 사용한다.
+ */
+@Component
+public class KisCredentialPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(KisCredentialPool.class);
+
+    @Value("${kis.api.appkey}")
+    private String appKey;
+
+    @Value("${kis.api.secretkey}")
+    private String appSecret;
+
+    @Value("${kis.api.appkeys:}")
+    private String appKeys;
+
+    @Value("${kis.api.requests-per-second:15}")
+    private double requestsPerSecond;
+
+    private List<KisCredential> credentials;
+
+    @PostConstruct
+    public void init() {
+        List<KisCredential> loaded = new ArrayList<>();
+        for (String pair : appKeys.split(",")) {
+            if (pair.isBlank()) {
+                continue;
+            }
+            String[] parts = pair.trim().split(":", 2);
+            if (parts.length != 2) {
+                throw new IllegalStateException("kis.api.appkeys entries must be appkey:secretkey");
+            }
+            loaded.add(new KisCredential(loaded.size(), parts[0].trim(), parts[1].trim(), requestsPerSecond));
+        }
+        if (loaded.isEmpty()) {
+            loaded.add(new KisCredential(0, appKey, appSecret, requestsPerSecond));
+        }
+        credentials = Collections.unmodifiableList(loaded);
+        logger.info("KIS credential pool: {} app keys, {} requests/sec each", credentials.size(), requestsPerSecond);
+    }
+
+    // 주문, 해시키, 실시간 접속키 등 종목과 무관한 호출에 쓰는 기본 앱키
+    public KisCredential primary() {
+        return credentials.get(0);
+    }
+
+    public List<KisCredential> getCredentials() {
+        return credentials;
+    }
+
+    public int size() {
+        return credentials.size();
+    }
+
+    // 종목 코드에 고정 배정된 앱키
+    public KisCredential forStock(String stockCode) {
+        return credentials.get(Math.floorMod(stockCode.hashCode(), credentials.size()));
+    }
+
+    /**
+     * 종목 조회에 사용할 앱키를 고르고 호출 토큰을 하나 받는다.
+     * 배정된 앱키가 한도 초과로 쉬는 중이면 쉬고 있지 않은 다음 앱키로 넘긴다.
+     */
+    public KisCredential acquire(String stockCode) throws InterruptedException {
+        KisCredential assigned = forStock(stockCode);
+        KisCredential selected = assigned;
+        if (assigned.isThrottled()) {
+            for (int i = 1; i < credentials.size(); i++) {
+                KisCredential candidate = credentials.get((assigned.getIndex() + i) % credentials.size());
+                if (!candidate.isThrottled()) {
+                    selected = candidate;
+                    break;
+                }
+            }
+        }
+        selected.getRateLimiter().acquire();
+        return selected;
+    }
+
+    // 앱키 전체의 초당 호출 한도 합계
+    public double getTotalRequestsPerSecond() {
+        return requestsPerSecond * credentials.size();
+    }
+}
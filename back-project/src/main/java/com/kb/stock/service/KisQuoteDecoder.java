@@ -0,0 +1,172 @@
+package com.kb.stock.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.kb.stock.dto.KisQuote;
+import com.kb.stock.dto.StockDTO;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * inquire-price 응답 디코더
+ * Jackson 스트리밍 파서로 output 객체에서 필요한 필드만 읽어 KisQuote 에 바로 채운다.
+ * 숫자 필드는 파서의 문자 버퍼에서 직접 변환하므로 중간 Map 이나 String 을 만들지 않는다.
+ */
+@Component
+public class KisQuoteDecoder {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * @param body 응답 본문
+     * @return output 이 있으면 디코딩된 시세, 없으면 null (오류 응답 등)
+     */
+    public KisQuote decode(byte[] body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            KisQuote quote = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("output".equals(fieldName) && token == JsonToken.START_OBJECT) {
+                    quote = readOutput(parser);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return quote;
+        }
+    }
+
+    // 디코딩한 시세를 캐시/DB 에 쓰는 StockDTO 로 변환
+    public static StockDTO toStockDTO(KisQuote quote, String stockName) {
+        StockDTO stockDTO = new StockDTO();
+        stockDTO.setStockCode(quote.getStockCode());
+        stockDTO.setStockName(stockName != null ? stockName : "");
+        stockDTO.setCurrentPrice(BigDecimal.valueOf(quote.getCurrentPrice()));
+        stockDTO.setPriceChange(BigDecimal.valueOf(quote.getPriceChange()));
+        stockDTO.setPriceChangePct(BigDecimal.valueOf(quote.getPriceChangePctX100(), 2));
+        stockDTO.setHighPrice(BigDecimal.valueOf(quote.getHighPrice()));
+        stockDTO.setLowPrice(BigDecimal.valueOf(quote.getLowPrice()));
+        stockDTO.setOpeningPrice(BigDecimal.valueOf(quote.getOpeningPrice()));
+        stockDTO.setIndustry(quote.getIndustry() != null ? quote.getIndustry() : "");
+        stockDTO.setVolume(quote.getVolume());
+        stockDTO.setHtsAvls(BigDecimal.valueOf(quote.getHtsAvls())); // HTS 시가총액
+        stockDTO.setW52Hgpr(BigDecimal.valueOf(quote.getW52Hgpr())); // 52주일 최고가
+        stockDTO.setW52Lwpr(BigDecimal.valueOf(quote.getW52Lwpr())); // 52주일 최저가
+        stockDTO.setAcmlTrPbmn(BigDecimal.valueOf(quote.getAcmlTrPbmn())); // 누적 거래대금
+        return stockDTO;
+    }
+
+    private KisQuote readOutput(JsonParser parser) throws IOException {
+        KisQuote quote = new KisQuote();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (token != JsonToken.VALUE_STRING && token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT) {
+                parser.skipChildren();
+                continue;
+            }
+
+            switch (fieldName) {
+                case "stck_shrn_iscd":
+                    quote.setStockCode(parser.getText());
+                    break;
+                case "bstp_kor_isnm":
+                    quote.setIndustry(parser.getText());
+                    break;
+                case "stck_prpr":
+                    quote.setCurrentPrice(readScaled(parser, 0));
+                    break;
+                case "prdy_vrss":
+                    quote.setPriceChange(readScaled(parser, 0));
+                    break;
+                case "prdy_ctrt":
+                    quote.setPriceChangePctX100(readScaled(parser, 2));
+                    break;
+                case "stck_hgpr":
+                    quote.setHighPrice(readScaled(parser, 0));
+                    break;
+                case "stck_lwpr":
+                    quote.setLowPrice(readScaled(parser, 0));
+                    break;
+                case "stck_oprc":
+                    quote.setOpeningPrice(readScaled(parser, 0));
+                    break;
+                case "acml_vol":
+                    quote.setVolume(readScaled(parser, 0));
+                    break;
+                case "hts_avls":
+                    quote.setHtsAvls(readScaled(parser, 0));
+                    break;
+                case "w52_hgpr":
+                    quote.setW52Hgpr(readScaled(parser, 0));
+                    break;
+                case "w52_lwpr":
+                    quote.setW52Lwpr(readScaled(parser, 0));
+                    break;
+                case "acml_tr_pbmn":
+                    quote.setAcmlTrPbmn(readScaled(parser, 0));
+                    break;
+                default:
+                    break;
+            }
+        }
+        return quote;
+    }
+
+    private static long readScaled(JsonParser parser, int scale) throws IOException {
+        return parseScaled(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), scale);
+    }
+
+    /**
+     * "-1.234" 같은 10진 문자열을 10^scale 배 한 정수로 변환 (scale 을 넘는 자릿수는 버림)
+     * 빈 문자열이나 숫자가 없는 값은 0
+     */
+    static long parseScaled(char[] chars, int offset, int length, int scale) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end && chars[i] == ' ') {
+            i++;
+        }
+
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+
+        long value = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c == '.') {
+                if (fractionDigits >= 0) {
+                    break;
+                }
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (fractionDigits >= 0) {
+                    if (fractionDigits == scale) {
+                        continue;
+                    }
+                    fractionDigits++;
+                }
+                value = value * 10 + (c - '0');
+            } else if (c != ',') {
+                break;
+            }
+        }
+
+        for (int d = Math.max(fractionDigits, 0); d < scale; d++) {
+            value *= 10;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,74 @@
+package com.kb.stock.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 한국투자증권 API 초당 호출 한도에 맞춘 토큰 버킷
+ * 초당 permitsPerSecond 개의 토큰이 채워지고, 최대 burst 개까지 쌓일 수 있다.
+ */
+public class KisRateLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double permitsPerSecond;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public KisRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = Math.max(1, burst);
+        this.tokens = this.capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    // 토큰을 하나 얻을 때까지 대기 (잠금은 잔여 토큰 계산에만 사용하고 대기는 잠금 밖에서 한다)
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                waitNanos = (long) ((1 - tokens) / permitsPerSecond * NANOS_PER_SECOND);
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, 1));
+        }
+    }
+
+    // 대기 없이 토큰을 얻을 수 있으면 true
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    // 429 등 한도 초과 응답을 받았을 때 일정 시간 동안 토큰 발급을 멈춘다
+    public synchronized void penalize(long millis) {
+        refill();
+        double debt = permitsPerSecond * millis / 1000.0;
+        tokens = Math.min(tokens, 0) - debt;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * permitsPerSecond / NANOS_PER_SECOND);
+            lastRefillNanos = now;
+        }
+    }
+}
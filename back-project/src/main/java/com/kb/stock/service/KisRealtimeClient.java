@@ -0,0 +1,352 @@
+package com.kb.stock.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kb.stock.cache.RedisQuoteStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * KIS 실시간 체결가(H0STCNT0) WebSocket 클라이언트
+ * - StockSubscriptionRegistry 에서 구독자가 생긴 종목(demand)을 KIS 등록 한도(kis.ws.max-subscriptions) 안에서 등록/해제한다.
+ *   한도를 넘는 종목은 StockService 의 REST 조회로 보충된다.
+ * - PINGPONG 메시지는 그대로 돌려보내고, idle-timeout 동안 아무 메시지가 없으면 연결을 끊고 다시 연결한다.
+ * - 연결이 끊기면 지수 백오프로 재연결하고 등록했던 종목을 다시 등록한다.
+ * 연결, 등록, 재연결은 모두 kis-ws 스레드 하나에서 순서대로 처리한다.
+ */
+@Component
+public class KisRealtimeClient extends TextWebSocketHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(KisRealtimeClient.class);
+
+    private static final long RECONNECT_BASE_DELAY_MS = 1000;
+    private static final long HANDSHAKE_TIMEOUT_SECONDS = 10;
+    private static final int SEND_TIME_LIMIT_MS = 5000;
+    private static final int SEND_BUFFER_SIZE_LIMIT = 512 * 1024;
+
+    // 등록 응답 코드 (msg_cd)
+    private static final String MSG_ALREADY_SUBSCRIBED = "OPSP0002"; // ALREADY IN SUBSCRIBE: 이미 등록된 종목, 성공으로 본다
+    private static final String MSG_APPKEY_IN_USE = "OPSP8996";      // ALREADY IN USE appkey: 같은 접속키로 다른 세션이 열려 있다
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private KisCredentialPool credentialPool;
+
+    @Autowired
+    private KisTickParser tickParser;
+
+    @Autowired
+    private StockSubscriptionRegistry subscriptionRegistry;
+
+    @Autowired
+    private RedisQuoteStore redisQuoteStore;
+
+    private StockService stockService;
+
+    @Value("${kis.ws.enabled:true}")
+    private boolean enabled;
+
+    @Value("${kis.ws.url:ws://ops.koreainvestment.com:21000/tryitout/H0STCNT0}")
+    private String url;
+
+    // KIS 는 접속키 하나당 실시간 등록 수를 제한한다
+    @Value("${kis.ws.max-subscriptions:41}")
+    private int maxSubscriptions;
+
+    @Value("${kis.ws.idle-timeout-ms:120000}")
+    private long idleTimeoutMs;
+
+    @Value("${kis.ws.reconnect-max-delay-ms:60000}")
+    private long reconnectMaxDelayMs;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Set<String> demand = ConcurrentHashMap.newKeySet();     // 사용자가 구독 중인 종목
+    private final Set<String> registered = ConcurrentHashMap.newKeySet(); // 현재 연결에 등록 요청한 종목
+    private final Set<String> rejected = ConcurrentHashMap.newKeySet();   // 현재 연결에서 등록이 거절된 종목
+
+    private volatile WebSocketSession session;
+    private volatile String approvalKey;
+    private volatile long lastMessageNanos;
+    private volatile boolean shuttingDown;
+
+    private final AtomicBoolean reconnectScheduled = new AtomicBoolean();
+    private final AtomicInteger reconnectAttempts = new AtomicInteger();
+    private final AtomicLong ticksReceived = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    @Lazy
+    public void setStockService(StockService stockService) {
+        this.stockService = stockService;
+    }
+
+    @PostConstruct
+    public void init() {
+        subscriptionRegistry.addListener(new StockSubscriptionRegistry.Listener() {
+            @Override
+            public void onFirstSubscriber(String stockCode) {
+                subscribe(stockCode);
+            }
+
+            @Override
+            public void onLastSubscriberGone(String stockCode) {
+                unsubscribe(stockCode);
+            }
+        });
+        if (!enabled) {
+            logger.info("KIS realtime feed disabled (kis.ws.enabled=false), using REST polling only");
+            return;
+        }
+        if (redisQuoteStore.isReplica()) {
+            logger.info("KIS realtime feed disabled on Redis replica node");
+            enabled = false;
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("kis-ws-"));
+        executor.execute(this::connect);
+        long checkInterval = Math.max(1000, idleTimeoutMs / 2);
+        executor.scheduleWithFixedDelay(this::checkConnection, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shuttingDown = true;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        WebSocketSession current = session;
+        if (current != null && current.isOpen()) {
+            try {
+                current.close(CloseStatus.GOING_AWAY);
+            } catch (IOException e) {
+                logger.debug("Error closing KIS realtime session", e);
+            }
+        }
+    }
+
+    private void subscribe(String stockCode) {
+        if (demand.add(stockCode)) {
+            requestSync();
+        }
+    }
+
+    private void unsubscribe(String stockCode) {
+        if (demand.remove(stockCode)) {
+            requestSync();
+        }
+    }
+
+    // 실시간으로 체결가를 받고 있는 종목인지 (아니면 REST 조회로 보충해야 함)
+    public boolean isStreaming(String stockCode) {
+        WebSocketSession current = session;
+        return current != null && current.isOpen() && registered.contains(stockCode);
+    }
+
+    // 수동 재연결 (WebSocketController /connect)
+    public void connectNow() {
+        if (executor != null) {
+            executor.execute(this::connect);
+        }
+    }
+
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        WebSocketSession current = session;
+        metrics.put("realtimeConnected", current != null && current.isOpen());
+        metrics.put("realtimeDemand", demand.size());
+        metrics.put("realtimeRegistered", registered.size());
+        metrics.put("realtimeTicks", ticksReceived.get());
+        metrics.put("realtimeReconnects", reconnects.get());
+        return metrics;
+    }
+
+    private void requestSync() {
+        if (executor != null && !shuttingDown) {
+            executor.execute(this::syncSubscriptions);
+        }
+    }
+
+    private void connect() {
+        WebSocketSession current = session;
+        if (shuttingDown || (current != null && current.isOpen())) {
+            return;
+        }
+        String key = tokenService.getApprovalKey(credentialPool.primary());
+        if (key == null) {
+            logger.error("Approval Key 발급 실패로 인해 KIS 실시간 연결 보류");
+            scheduleReconnect();
+            return;
+        }
+        approvalKey = key;
+        try {
+            new StandardWebSocketClient().doHandshake(this, url).get(HANDSHAKE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            logger.warn("KIS realtime connection to {} failed: {}", url, e.getMessage());
+            scheduleReconnect();
+        }
+    }
+
+    private void scheduleReconnect() {
+        if (shuttingDown || executor == null || !reconnectScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        int attempt = reconnectAttempts.getAndIncrement();
+        long delay = Math.min(reconnectMaxDelayMs, RECONNECT_BASE_DELAY_MS << Math.min(attempt, 16));
+        delay += ThreadLocalRandom.current().nextLong(delay / 4 + 1); // 여러 서버가 동시에 재연결하지 않도록
+        logger.info("Reconnecting to KIS realtime in {} ms (attempt {})", delay, attempt + 1);
+        executor.schedule(() -> {
+            reconnectScheduled.set(false);
+            reconnects.incrementAndGet();
+            connect();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // idle-timeout 동안 메시지가 없으면 끊고 재연결, 연결이 없는데 재연결 예약도 없으면 예약
+    private void checkConnection() {
+        WebSocketSession current = session;
+        if (current == null || !current.isOpen()) {
+            scheduleReconnect();
+            return;
+        }
+        long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastMessageNanos);
+        if (idleMs > idleTimeoutMs) {
+            logger.warn("No message from KIS realtime for {} ms, reconnecting", idleMs);
+            try {
+                current.close(CloseStatus.SESSION_NOT_RELIABLE);
+            } catch (IOException e) {
+                logger.debug("Error closing idle KIS realtime session", e);
+            }
+        }
+    }
+
+    // demand 와 registered 를 맞춘다 (kis-ws 스레드에서만 호출)
+    private void syncSubscriptions() {
+        WebSocketSession current = session;
+        if (current == null || !current.isOpen()) {
+            return;
+        }
+        for (String stockCode : registered) {
+            if (!demand.contains(stockCode) && send(current, "2", stockCode)) {
+                registered.remove(stockCode);
+            }
+        }
+        for (String stockCode : demand) {
+            if (registered.size() >= maxSubscriptions) {
+                break;
+            }
+            if (!registered.contains(stockCode) && !rejected.contains(stockCode) && send(current, "1", stockCode)) {
+                registered.add(stockCode);
+            }
+        }
+    }
+
+    // tr_type 1: 등록, 2: 해제
+    private boolean send(WebSocketSession current, String trType, String stockCode) {
+        String message = String.format("{\"header\":{\"approval_key\":\"%s\",\"custtype\":\"P\",\"tr_type\":\"%s\",\"content-type\":\"utf-8\"},"
+                + "\"body\":{\"input\":{\"tr_id\":\"%s\",\"tr_key\":\"%s\"}}}", approvalKey, trType, KisTickParser.TR_ID, stockCode);
+        try {
+            current.sendMessage(new TextMessage(message));
+            return true;
+        } catch (Exception e) {
+            logger.error("종목 실시간 {} 요청 전송 중 오류 발생: {}", "1".equals(trType) ? "등록" : "해제", stockCode, e);
+            return false;
+        }
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession rawSession) {
+        session = new ConcurrentWebSocketSessionDecorator(rawSession, SEND_TIME_LIMIT_MS, SEND_BUFFER_SIZE_LIMIT);
+        lastMessageNanos = System.nanoTime();
+        reconnectAttempts.set(0);
+        registered.clear();
+        rejected.clear();
+        logger.info("KIS realtime connected, resubscribing {} stocks", demand.size());
+        requestSync();
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession rawSession, TextMessage message) throws Exception {
+        lastMessageNanos = System.nanoTime();
+        String payload = message.getPayload();
+
+        if (tickParser.isDataFrame(payload)) {
+            int count = tickParser.parse(payload, stockService::applyTick);
+            ticksReceived.addAndGet(count);
+            return;
+        }
+
+        JsonNode root = objectMapper.readTree(payload);
+        JsonNode header = root.path("header");
+        String trId = header.path("tr_id").asText();
+        if ("PINGPONG".equals(trId)) {
+            WebSocketSession current = session;
+            if (current != null) {
+                current.sendMessage(new TextMessage(payload));
+            }
+            return;
+        }
+
+        JsonNode body = root.path("body");
+        String stockCode = header.path("tr_key").asText();
+        String msg = body.path("msg1").asText();
+        String msgCode = body.path("msg_cd").asText();
+        if (MSG_APPKEY_IN_USE.equals(msgCode)) {
+            // 이 연결로는 아무 종목도 받지 못한다. 연결 실패로 보고 끊은 뒤 백오프로 다시 연결한다 (그동안은 REST 로 보충)
+            logger.warn("KIS realtime approval key already in use by another session, reconnecting: {}", msg);
+            registered.clear();
+            rawSession.close(CloseStatus.SERVER_ERROR);
+            return;
+        }
+        if (!"0".equals(body.path("rt_cd").asText()) && !MSG_ALREADY_SUBSCRIBED.equals(msgCode)) {
+            // 한도 초과 등으로 거절된 종목은 이번 연결에서는 다시 등록하지 않는다 (REST 로 보충)
+            logger.warn("KIS realtime rejected {}: {} {}", stockCode, msgCode, msg);
+            if (registered.remove(stockCode)) {
+                rejected.add(stockCode);
+            }
+        } else {
+            logger.debug("KIS realtime {} {}: {}", trId, stockCode, msg);
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession rawSession, Throwable exception) {
+        logger.warn("KIS realtime transport error: {}", exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession rawSession, CloseStatus status) {
+        logger.info("KIS realtime connection closed: {}", status);
+        session = null;
+        registered.clear();
+        scheduleReconnect();
+    }
+}
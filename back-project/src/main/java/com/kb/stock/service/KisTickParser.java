@@ -0,0 +1,151 @@
+package com.kb.stock.service;
+
+import com.kb.stock.dto.KisTick;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * 실시간 체결가(H0STCNT0) 데이터 프레임 파서
+ * 프레임 형식: 암호화여부|TR_ID|데이터건수|필드^필드^...  (건수만큼 46개 필드가 이어짐)
+ * split 없이 구분자 위치만 따라가며 필요한 필드를 바로 숫자로 읽는다.
+ */
+@Component
+public class KisTickParser {
+
+    static final String TR_ID = "H0STCNT0";
+    static final int FIELD_COUNT = 46;
+
+    private static final int F_STOCK_CODE = 0;
+    private static final int F_TICK_TIME = 1;
+    private static final int F_CURRENT_PRICE = 2;
+    private static final int F_PRICE_CHANGE = 4;
+    private static final int F_PRICE_CHANGE_PCT = 5;
+    private static final int F_OPENING_PRICE = 7;
+    private static final int F_HIGH_PRICE = 8;
+    private static final int F_LOW_PRICE = 9;
+    private static final int F_TRADE_VOLUME = 12;
+    private static final int F_VOLUME = 13;
+    private static final int F_ACML_TR_PBMN = 14;
+
+    // 데이터 프레임(0 또는 1 로 시작)인지 여부. 나머지는 JSON 제어 메시지
+    public boolean isDataFrame(String frame) {
+        return !frame.isEmpty() && (frame.charAt(0) == '0' || frame.charAt(0) == '1');
+    }
+
+    /**
+     * 체결가 프레임을 읽어 건마다 sink 로 넘기고 건수를 반환한다.
+     * 암호화 프레임이나 다른 TR 이면 0
+     */
+    public int parse(String frame, Consumer<KisTick> sink) {
+        if (!isDataFrame(frame) || frame.charAt(0) == '1') {
+            return 0;
+        }
+        int trStart = frame.indexOf('|') + 1;
+        int countStart = frame.indexOf('|', trStart) + 1;
+        int dataStart = frame.indexOf('|', countStart) + 1;
+        if (trStart <= 0 || countStart <= 0 || dataStart <= 0
+                || countStart - trStart - 1 != TR_ID.length()
+                || !frame.regionMatches(trStart, TR_ID, 0, TR_ID.length())) {
+            return 0;
+        }
+
+        int expected = (int) parseScaled(frame, countStart, dataStart - 1, 0);
+        int parsed = 0;
+        int field = 0;
+        int fieldStart = dataStart;
+        KisTick tick = new KisTick();
+        int length = frame.length();
+        for (int i = dataStart; i <= length && parsed < expected; i++) {
+            if (i < length && frame.charAt(i) != '^') {
+                continue;
+            }
+            readField(tick, field, frame, fieldStart, i);
+            fieldStart = i + 1;
+            if (++field == FIELD_COUNT) {
+                sink.accept(tick);
+                parsed++;
+                field = 0;
+                tick = new KisTick();
+            }
+        }
+        return parsed;
+    }
+
+    private void readField(KisTick tick, int field, String frame, int start, int end) {
+        switch (field) {
+            case F_STOCK_CODE:
+                tick.setStockCode(frame.substring(start, end));
+                break;
+            case F_TICK_TIME:
+                tick.setTickTime((int) parseScaled(frame, start, end, 0));
+                break;
+            case F_CURRENT_PRICE:
+                tick.setCurrentPrice(parseScaled(frame, start, end, 0));
+                break;
+            case F_PRICE_CHANGE:
+                tick.setPriceChange(parseScaled(frame, start, end, 0));
+                break;
+            case F_PRICE_CHANGE_PCT:
+                tick.setPriceChangePctX100(parseScaled(frame, start, end, 2));
+                break;
+            case F_OPENING_PRICE:
+                tick.setOpeningPrice(parseScaled(frame, start, end, 0));
+                break;
+            case F_HIGH_PRICE:
+                tick.setHighPrice(parseScaled(frame, start, end, 0));
+                break;
+            case F_LOW_PRICE:
+                tick.setLowPrice(parseScaled(frame, start, end, 0));
+                break;
+            case F_TRADE_VOLUME:
+                tick.setTradeVolume(parseScaled(frame, start, end, 0));
+                break;
+            case F_VOLUME:
+                tick.setVolume(parseScaled(frame, start, end, 0));
+                break;
+            case F_ACML_TR_PBMN:
+                tick.setAcmlTrPbmn(parseScaled(frame, start, end, 0));
+                break;
+            default:
+                break;
+        }
+    }
+
+    // KisQuoteDecoder.parseScaled 와 같은 규칙 (문자열 구간 버전)
+    static long parseScaled(String s, int start, int end, int scale) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negative = s.charAt(i) == '-';
+            i++;
+        }
+
+        long value = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '.') {
+                if (fractionDigits >= 0) {
+                    break;
+                }
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9') {
+                if (fractionDigits >= 0) {
+                    if (fractionDigits == scale) {
+                        continue;
+                    }
+                    fractionDigits++;
+                }
+                value = value * 10 + (c - '0');
+            } else {
+                break;
+            }
+        }
+
+        for (int d = Math.max(fractionDigits, 0); d < scale; d++) {
+            value *= 10;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,33 @@
+package com.kb.stock.service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// 접근 토큰 / 실시간 접속키와 만료 시각 (불변)
+public final class KisToken {
+
+    private final String value;
+    private final Instant expiresAt;
+
+    public KisToken(String value, Instant expiresAt) {
+        this.value = value;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(Instant now) {
+        return !now.isBefore(expiresAt);
+    }
+
+    // 만료까지 margin 이하로 남았는지 (미리 갱신할 시점인지)
+    public boolean expiresWithin(Duration margin, Instant now) {
+        return !now.plus(margin).isBefore(expiresAt);
+    }
+}
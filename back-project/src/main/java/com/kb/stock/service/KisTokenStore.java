@@ -0,0 +1,120 @@
+package com.kb.stock.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Properties;
+
+/**
+ * 발급받은 접근 토큰 / 실시간 접속키를 로컬 파일에 보관
+ * KIS 는 접근 토큰 발급 횟수를 제한하므로 서버를 재시작해도 유효한 토큰은 그대로 다시 쓴다.
+ * 파일에는 앱키 원문 대신 앱키 해시를 키로 저장한다.
+ */
+@Component
+public class KisTokenStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(KisTokenStore.class);
+
+    static final String ACCESS_TOKEN = "access_token";
+    static final String APPROVAL_KEY = "approval_key";
+
+    // 비워 두면 파일에 저장하지 않는다
+    @Value("${kis.token.store-path:}")
+    private String storePath;
+
+    public synchronized KisToken load(KisCredential credential, String kind) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Properties properties = read();
+        String prefix = keyId(credential) + "." + kind;
+        String value = properties.getProperty(prefix);
+        String expiresAt = properties.getProperty(prefix + ".expires_at");
+        if (value == null || expiresAt == null) {
+            return null;
+        }
+        try {
+            KisToken token = new KisToken(value, Instant.ofEpochSecond(Long.parseLong(expiresAt)));
+            return token.isExpired(Instant.now()) ? null : token;
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring malformed {} entry for {}", kind, credential);
+            return null;
+        }
+    }
+
+    public synchronized void save(KisCredential credential, String kind, KisToken token) {
+        if (!isEnabled()) {
+            return;
+        }
+        Properties properties = read();
+        String prefix = keyId(credential) + "." + kind;
+        properties.setProperty(prefix, token.getValue());
+        properties.setProperty(prefix + ".expires_at", Long.toString(token.getExpiresAt().getEpochSecond()));
+
+        Path path = Paths.get(storePath);
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            // 임시 파일에 쓴 뒤 교체해서 중간에 죽어도 기존 파일이 깨지지 않게 한다
+            Path temp = Files.createTempFile(parent, "kis-tokens", ".tmp");
+            restrictPermissions(temp);
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "KIS tokens");
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to persist KIS {} to {}", kind, storePath, e);
+        }
+    }
+
+    private boolean isEnabled() {
+        return storePath != null && !storePath.isBlank();
+    }
+
+    private Properties read() {
+        Properties properties = new Properties();
+        Path path = Paths.get(storePath);
+        if (Files.exists(path)) {
+            try (InputStream in = Files.newInputStream(path)) {
+                properties.load(in);
+            } catch (IOException e) {
+                logger.warn("Failed to read KIS token store {}", storePath, e);
+            }
+        }
+        return properties;
+    }
+
+    private void restrictPermissions(Path path) {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException e) {
+            // POSIX 권한을 지원하지 않는 파일 시스템
+        }
+    }
+
+    private String keyId(KisCredential credential) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(credential.getAppKey().getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                sb.append(String.format("%02x", digest[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.kb.stock.service;
+
+import com.kb.stock.cache.QuoteBook;
+import com.kb.stock.cache.RedisQuoteStore;
+import com.kb.stock.dto.StockCandleDTO;
+import com.kb.stock.dto.StockMinuteCandleDTO;
+import com.kb.stock.mapper.StockCandleMapper;
+import com.kb.stock.scheduler.KrxSessionCalendar;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 실시간 시세로 1분봉/일봉 만들기
+ * 캐시에 반영되는 시세마다 종목별 현재 분봉과 일봉에 시가/고가/저가/종가/거래량을 합친다.
+ * - 분봉: 다음 분의 시세가 오거나 매분 점검 때 지난 분이 되면 닫아서 모아 두었다가
+ *   stocks_candle_minute 에 여러 행 upsert 로 한 번에 쓴다.
+ * - 일봉: 장 마감 후 한 번 stocks_candle 에 쓴다. 시가/고가/저가는 거래소 값(시세의 시가/고가/저가)이 있으면 그 값을 쓴다.
+ * 정규장 시간 밖의 시세(DB 재적재 등)는 합치지 않고, Redis replica 노드에서는 동작하지 않는다.
+ * 분봉은 minute-retention-days 일만 보관하고, 일봉을 쓴 뒤 그보다 오래된 분봉을 나눠서 지운다.
+ */
+@Component
+public class StockCandleAggregator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockCandleAggregator.class);
+
+    private static final long MINUTE_MS = 60_000L;
+    private static final long DAY_MS = 86_400_000L;
+
+    @Autowired
+    private StockCandleMapper stockCandleMapper;
+
+    @Autowired
+    private KrxSessionCalendar sessionCalendar;
+
+    @Autowired
+    private RedisQuoteStore redisQuoteStore;
+
+    private StockCandleService candleService;
+
+    @Value("${stock.candle.flush-size:500}")
+    private int flushSize;
+
+    @Value("${stock.candle.minute-retention-days:30}")
+    private int minuteRetentionDays;
+
+    private final Map<String, CandleState> states = new ConcurrentHashMap<>();
+    private final Queue<StockMinuteCandleDTO> closedMinutes = new ConcurrentLinkedQueue<>();
+    private final Object flushMonitor = new Object();
+
+    private final AtomicLong minuteCandlesWritten = new AtomicLong();
+    private final AtomicLong dailyCandlesWritten = new AtomicLong();
+    private final AtomicLong minuteCandlesPurged = new AtomicLong();
+
+    private long offsetMs;          // KRX 표준시 오프셋 (서머타임 없음)
+    private long openMsOfDay;
+    private long closeMsOfDay;
+    private long checkedEpochDay = Long.MIN_VALUE;
+    private boolean checkedTradingDay;
+    private volatile LocalDate dailyWrittenDate;
+
+    @PostConstruct
+    public void init() {
+        offsetMs = KrxSessionCalendar.KRX_ZONE.getRules().getOffset(Instant.now()).getTotalSeconds() * 1000L;
+        openMsOfDay = sessionCalendar.getOpenTime().toSecondOfDay() * 1000L;
+        closeMsOfDay = (sessionCalendar.getCloseTime().toSecondOfDay() + 59) * 1000L; // 마감 시각의 1분 포함
+    }
+
+    @Autowired
+    @Lazy
+    public void setCandleService(StockCandleService candleService) {
+        this.candleService = candleService;
+    }
+
+    /**
+     * 시세 한 건 반영 (InMemoryStockCache 쓰기 스레드에서 호출)
+     * 가격은 x100 고정소수점, 없으면 QuoteBook.ABSENT. volume 은 당일 누적 거래량.
+     */
+    public void onQuote(String stockCode, long timeMillis, long price, long dayOpen, long dayHigh, long dayLow, long volume) {
+        if (price == QuoteBook.ABSENT || redisQuoteStore.isReplica()) {
+            return;
+        }
+        long localMillis = timeMillis + offsetMs;
+        long epochDay = Math.floorDiv(localMillis, DAY_MS);
+        long msOfDay = Math.floorMod(localMillis, DAY_MS);
+        if (msOfDay < openMsOfDay || msOfDay > closeMsOfDay || !isTradingDay(epochDay)) {
+            return;
+        }
+        long minuteStart = timeMillis - Math.floorMod(timeMillis, MINUTE_MS);
+
+        CandleState state = states.computeIfAbsent(stockCode, CandleState::new);
+        StockMinuteCandleDTO closed = null;
+        synchronized (state) {
+            if (state.epochDay != epochDay) {
+                state.startDay(epochDay, volume);
+            }
+            if (minuteStart < state.minuteStart || minuteStart <= state.lastClosedMinute) {
+                return; // 이미 닫힌 분의 늦은 시세 (다시 열면 저장된 분봉을 덮어쓴다)
+            }
+            if (minuteStart > state.minuteStart) {
+                closed = state.closeMinute();
+                state.startMinute(minuteStart, price);
+            }
+            state.fold(price, dayOpen, dayHigh, dayLow, volume);
+        }
+        if (closed != null) {
+            closedMinutes.add(closed);
+        }
+    }
+
+    // 매분 1초: 시세가 더 오지 않은 종목의 지난 분봉도 닫아서 저장
+    @Scheduled(cron = "1 * * * * *")
+    public void flushMinuteCandles() {
+        long currentMinute = System.currentTimeMillis() / MINUTE_MS * MINUTE_MS;
+        for (CandleState state : states.values()) {
+            StockMinuteCandleDTO closed = null;
+            synchronized (state) {
+                if (state.hasOpenMinute() && state.minuteStart < currentMinute) {
+                    closed = state.closeMinute();
+                }
+            }
+            if (closed != null) {
+                closedMinutes.add(closed);
+            }
+        }
+        writeClosedMinutes();
+    }
+
+    // 장 마감 후 한 번 당일 일봉 저장
+    @Scheduled(cron = "30 * * * * *")
+    public void writeDailyCandlesAfterClose() {
+        LocalDateTime now = sessionCalendar.now();
+        LocalDate today = now.toLocalDate();
+        if (!sessionCalendar.isAfterClose(now) || today.equals(dailyWrittenDate)) {
+            return;
+        }
+        flushMinuteCandles();
+        long epochDay = today.toEpochDay();
+        List<StockCandleDTO> candles = new ArrayList<>();
+        for (CandleState state : states.values()) {
+            synchronized (state) {
+                if (state.epochDay == epochDay && state.dayClose != QuoteBook.ABSENT) {
+                    candles.add(state.toDailyCandle(today));
+                }
+            }
+        }
+        List<String> stockCodes = new ArrayList<>(candles.size());
+        candles.forEach(candle -> stockCodes.add(candle.getStockCode()));
+        if (writeChunks(candles, stockCandleMapper::upsertStockCandles, dailyCandlesWritten)) {
+            dailyWrittenDate = today;
+            candleService.onDailyCandlesWritten(candles); // 차트 캐시/로컬 저장소에 오늘 일봉 반영
+            logger.info("Wrote {} daily candles for {}", stockCodes.size(), today);
+            purgeExpiredMinuteCandles(today);
+        } else {
+            candleService.invalidate(stockCodes);
+        }
+    }
+
+    // 종목의 아직 닫히지 않은 현재 분봉 (없으면 null)
+    public StockMinuteCandleDTO getOpenMinuteCandle(String stockCode) {
+        CandleState state = states.get(stockCode);
+        if (state == null) {
+            return null;
+        }
+        synchronized (state) {
+            return state.hasOpenMinute() ? state.toMinuteCandle() : null;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeClosedMinutes();
+    }
+
+    public Map<String, Long> getMetrics() {
+        return Map.of(
+                "candleMinuteWritten", minuteCandlesWritten.get(),
+                "candleMinutePending", (long) closedMinutes.size(),
+                "candleDailyWritten", dailyCandlesWritten.get(),
+                "candleMinutePurged", minuteCandlesPurged.get());
+    }
+
+    // 보관 기간이 지난 분봉 삭제 (0 이하면 지우지 않음). 한 번에 flush-size 행씩 지워 잠금을 짧게 유지한다
+    private void purgeExpiredMinuteCandles(LocalDate today) {
+        if (minuteRetentionDays <= 0) {
+            return;
+        }
+        LocalDateTime before = today.minusDays(minuteRetentionDays).atStartOfDay();
+        try {
+            int deleted;
+            do {
+                deleted = stockCandleMapper.deleteMinuteCandlesBefore(before, flushSize);
+                minuteCandlesPurged.addAndGet(deleted);
+            } while (deleted >= flushSize);
+        } catch (Exception e) {
+            // 다음 거래일 마감 후에 다시 지운다
+            logger.error("Error purging minute candles before {}: {}", before, e.getMessage());
+        }
+    }
+
+    private void writeClosedMinutes() {
+        synchronized (flushMonitor) {
+            if (closedMinutes.isEmpty()) {
+                return;
+            }
+            List<StockMinuteCandleDTO> candles = new ArrayList<>();
+            StockMinuteCandleDTO candle;
+            while ((candle = closedMinutes.poll()) != null) {
+                candles.add(candle);
+            }
+            if (!writeChunks(candles, stockCandleMapper::upsertMinuteCandles, minuteCandlesWritten)) {
+                // 실패한 분봉은 다음 분에 다시 쓴다
+                closedMinutes.addAll(candles);
+            }
+        }
+    }
+
+    private <T> boolean writeChunks(List<T> candles, Consumer<List<T>> writer, AtomicLong written) {
+        for (int i = 0; i < candles.size(); i += flushSize) {
+            List<T> chunk = candles.subList(i, Math.min(i + flushSize, candles.size()));
+            try {
+                writer.accept(chunk);
+                written.addAndGet(chunk.size());
+            } catch (Exception e) {
+                logger.error("Error writing {} candles: {}", chunk.size(), e.getMessage(), e);
+                candles.subList(0, i).clear(); // 이미 쓴 앞부분은 빼고 남은 것만 돌려준다
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isTradingDay(long epochDay) {
+        if (epochDay != checkedEpochDay) {
+            checkedTradingDay = sessionCalendar.isTradingDay(LocalDate.ofEpochDay(epochDay));
+            checkedEpochDay = epochDay;
+        }
+        return checkedTradingDay;
+    }
+
+    /**
+     * 종목 하나의 현재 분봉과 일봉
+     * 분봉 거래량은 누적 거래량의 차이 (직전 분 마지막 누적값 → 이번 분 마지막 누적값)
+     */
+    private final class CandleState {
+        private final String stockCode;
+        private long epochDay = Long.MIN_VALUE;
+        private long minuteStart = Long.MIN_VALUE;
+        private long lastClosedMinute = Long.MIN_VALUE;
+        private long open;
+        private long high;
+        private long low;
+        private long close = QuoteBook.ABSENT;
+        private long volumeAtMinuteStart;
+        private long lastVolume;
+
+        private long dayOpen;
+        private long dayHigh;
+        private long dayLow;
+        private long dayClose = QuoteBook.ABSENT;
+
+        private CandleState(String stockCode) {
+            this.stockCode = stockCode;
+        }
+
+        private void startDay(long epochDay, long volume) {
+            this.epochDay = epochDay;
+            minuteStart = Long.MIN_VALUE;
+            close = QuoteBook.ABSENT;
+            dayClose = QuoteBook.ABSENT;
+            lastVolume = volume != QuoteBook.ABSENT ? volume : 0L;
+            volumeAtMinuteStart = lastVolume;
+        }
+
+        private boolean hasOpenMinute() {
+            return close != QuoteBook.ABSENT;
+        }
+
+        private void startMinute(long minuteStart, long price) {
+            this.minuteStart = minuteStart;
+            open = price;
+            high = price;
+            low = price;
+            volumeAtMinuteStart = lastVolume;
+        }
+
+        private void fold(long price, long exchangeOpen, long exchangeHigh, long exchangeLow, long volume) {
+            high = Math.max(high, price);
+            low = Math.min(low, price);
+            close = price;
+            if (volume != QuoteBook.ABSENT && volume >= lastVolume) {
+                lastVolume = volume;
+            }
+
+            if (dayClose == QuoteBook.ABSENT) {
+                dayOpen = price;
+                dayHigh = price;
+                dayLow = price;
+            }
+            dayHigh = Math.max(dayHigh, price);
+            dayLow = Math.min(dayLow, price);
+            dayClose = price;
+            // 거래소가 집계한 당일 시가/고가/저가가 있으면 그 값이 기준
+            if (exchangeOpen != QuoteBook.ABSENT && exchangeOpen > 0) {
+                dayOpen = exchangeOpen;
+            }
+            if (exchangeHigh != QuoteBook.ABSENT && exchangeHigh > 0) {
+                dayHigh = Math.max(dayHigh, exchangeHigh);
+            }
+            if (exchangeLow != QuoteBook.ABSENT && exchangeLow > 0) {
+                dayLow = Math.min(dayLow, exchangeLow);
+            }
+        }
+
+        private StockMinuteCandleDTO closeMinute() {
+            if (!hasOpenMinute()) {
+                return null;
+            }
+            StockMinuteCandleDTO candle = toMinuteCandle();
+            lastClosedMinute = minuteStart;
+            close = QuoteBook.ABSENT;
+            volumeAtMinuteStart = lastVolume;
+            return candle;
+        }
+
+        private StockMinuteCandleDTO toMinuteCandle() {
+            return new StockMinuteCandleDTO(stockCode,
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(minuteStart), ZoneOffset.ofTotalSeconds((int) (offsetMs / 1000))),
+                    toFloat(open), toFloat(close), toFloat(high), toFloat(low),
+                    lastVolume - volumeAtMinuteStart);
+        }
+
+        private StockCandleDTO toDailyCandle(LocalDate day) {
+            StockCandleDTO candle = new StockCandleDTO();
+            candle.setStockCode(stockCode);
+            candle.setStockCandleDay(day.toString());
+            candle.setStockCandleOpen(toFloat(dayOpen));
+            candle.setStockCandleClose(toFloat(dayClose));
+            candle.setStockCandleHigh(toFloat(dayHigh));
+            candle.setStockCandleLow(toFloat(dayLow));
+            candle.setStockCandleVolume(lastVolume);
+            return candle;
+        }
+
+        private float toFloat(long fixedPoint) {
+            return (float) QuoteBook.toDouble(fixedPoint);
+        }
+    }
+}
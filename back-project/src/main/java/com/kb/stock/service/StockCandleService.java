@@ -1,32 +1,213 @@
 package com.kb.stock.service;
 
+import com.kb.stock.cache.CandleSlice;
+import com.kb.stock.cache.MappedCandleStore;
 import com.kb.stock.dto.StockCandleDTO;
+import com.kb.stock.dto.StockMinuteCandleDTO;
 import com.kb.stock.mapper.StockCandleMapper;
+import com.kb.stock.scheduler.KrxSessionCalendar;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.util.List;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
 
+/**
+ * 차트용 캔들 조회
+ * 기간이 길수록 굵은 봉을 쓴다: 1년 이하 일봉, 3년 주봉, 5년 월봉.
+ * 주봉/월봉은 일봉을 묶어 만들고, (종목, 봉 단위)별로 최대 조회 기간(5년)치를 캐시해 두고 기간만큼 잘라 준다.
+ * 캐시는 날짜가 바뀌거나 새 일봉이 저장되면(invalidate) 다시 만든다.
+ * 과거 일봉을 다시 적재하거나 고친 뒤에는 관리 API(invalidateHistory/invalidateAll)로 저장소 파일과 캐시를 함께 비운다.
+ * 로컬 캔들 저장소(MappedCandleStore)를 켜면 일봉은 DB 대신 저장소에서 읽는다.
+ */
 @Service
 public class StockCandleService {
 
+    // 봉 단위
+    public enum Resolution {
+        DAILY, WEEKLY, MONTHLY
+    }
+
     private final StockCandleMapper stockCandleMapper;
+    private final StockCandleAggregator candleAggregator;
+    private final KrxSessionCalendar sessionCalendar;
+    private final MappedCandleStore candleStore;
+
+    // 캐시할 최대 종목 수 (넘으면 가장 오래 안 쓴 종목부터 비운다)
+    @Value("${stock.candle.cache-max-symbols:500}")
+    private int cacheMaxSymbols;
+
+    private Map<String, CachedCandles> cache;
 
     // 생성자 주입
-    public StockCandleService(StockCandleMapper stockCandleMapper) {
+    public StockCandleService(StockCandleMapper stockCandleMapper, StockCandleAggregator candleAggregator,
+                              KrxSessionCalendar sessionCalendar, MappedCandleStore candleStore) {
         this.stockCandleMapper = stockCandleMapper;
+        this.candleAggregator = candleAggregator;
+        this.sessionCalendar = sessionCalendar;
+        this.candleStore = candleStore;
+    }
+
+    @PostConstruct
+    public void init() {
+        int maxEntries = Math.max(1, cacheMaxSymbols) * Resolution.values().length;
+        cache = Collections.synchronizedMap(new LinkedHashMap<String, CachedCandles>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCandles> eldest) {
+                return size() > maxEntries;
+            }
+        });
     }
 
     // 기간에 따라 주식 데이터를 가져오는 메서드
     public List<StockCandleDTO> getStockData(String stockCode, String period) {
         // 기간에 따른 시작 날짜 계산 (필요하다면 유틸리티로 따로 분리 가능)
         LocalDate startDate = calculateStartDate(period);
-        LocalDate endDate = LocalDate.now();
+        List<StockCandleDTO> candles = getCandles(stockCode, resolutionOf(period));
+
+        // 날짜 오름차순이므로 시작 날짜 이후만 잘라서 반환
+        String from = startDate.toString();
+        int low = 0;
+        int high = candles.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (candles.get(mid).getStockCandleDay().compareTo(from) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return new ArrayList<>(candles.subList(low, candles.size()));
+    }
+
+    // 오늘 저장된 1분봉 + 아직 닫히지 않은 현재 분봉
+    public List<StockMinuteCandleDTO> getTodayMinuteCandles(String stockCode) {
+        LocalDateTime from = sessionCalendar.now().toLocalDate().atStartOfDay();
+        List<StockMinuteCandleDTO> candles = new ArrayList<>(
+                stockCandleMapper.getMinuteCandles(stockCode, from, from.plusDays(1)));
+        StockMinuteCandleDTO openCandle = candleAggregator.getOpenMinuteCandle(stockCode);
+        if (openCandle != null && !openCandle.getStockCandleTime().isBefore(from)
+                && (candles.isEmpty() || candles.get(candles.size() - 1).getStockCandleTime().isBefore(openCandle.getStockCandleTime()))) {
+            candles.add(openCandle);
+        }
+        return candles;
+    }
+
+    // 장 마감 후 저장된 일봉 반영
+    public void onDailyCandlesWritten(List<StockCandleDTO> candles) {
+        candleStore.append(candles);
+        List<String> stockCodes = new ArrayList<>(candles.size());
+        candles.forEach(candle -> stockCodes.add(candle.getStockCode()));
+        invalidate(stockCodes);
+    }
+
+    // 새 일봉이 저장된 종목의 캐시 비우기
+    public void invalidate(Collection<String> stockCodes) {
+        for (String stockCode : stockCodes) {
+            for (Resolution resolution : Resolution.values()) {
+                cache.remove(cacheKey(stockCode, resolution));
+            }
+        }
+    }
+
+    // 과거 일봉이 바뀐 종목의 저장소 파일과 캐시 비우기 (다음 조회 때 DB 에서 다시 만든다)
+    public void invalidateHistory(String stockCode) {
+        candleStore.invalidate(stockCode);
+        invalidate(Collections.singletonList(stockCode));
+    }
+
+    public void invalidateAll() {
+        candleStore.invalidateAll();
+        cache.clear();
+    }
+
+    // 기간별 봉 단위
+    public Resolution resolutionOf(String period) {
+        switch (period) {
+            case "3years":
+                return Resolution.WEEKLY;
+            case "5years":
+                return Resolution.MONTHLY;
+            default:
+                calculateStartDate(period); // 잘못된 기간 검사
+                return Resolution.DAILY;
+        }
+    }
+
+    // 최대 조회 기간(5년)치 봉 (날짜 오름차순, 캐시)
+    private List<StockCandleDTO> getCandles(String stockCode, Resolution resolution) {
+        LocalDate today = LocalDate.now();
+        String key = cacheKey(stockCode, resolution);
+        CachedCandles cached = cache.get(key);
+        if (cached != null && cached.builtOn.equals(today)) {
+            return cached.candles;
+        }
+
+        List<StockCandleDTO> candles;
+        if (resolution == Resolution.DAILY) {
+            candles = loadDaily(stockCode, calculateStartDate("5years"), today);
+        } else {
+            candles = rollUp(getCandles(stockCode, Resolution.DAILY), resolution);
+        }
+        candles = Collections.unmodifiableList(candles);
+        cache.put(key, new CachedCandles(today, candles));
+        return candles;
+    }
 
-        // MyBatis 매퍼를 통해 데이터를 조회
+    private List<StockCandleDTO> loadDaily(String stockCode, LocalDate startDate, LocalDate endDate) {
+        if (candleStore.isEnabled()) {
+            CandleSlice slice = candleStore.range(stockCode, startDate, endDate);
+            if (slice != null) {
+                return slice.toDtos(stockCode);
+            }
+        }
         return stockCandleMapper.getStockData(stockCode, startDate, endDate);
     }
 
+    /**
+     * 일봉을 주봉(월요일 시작 주)/월봉으로 묶기
+     * 시가는 첫 거래일 시가, 종가는 마지막 거래일 종가, 고가/저가는 최대/최소, 거래량은 합.
+     * 봉의 날짜는 그 주/월의 첫 거래일
+     */
+    private List<StockCandleDTO> rollUp(List<StockCandleDTO> daily, Resolution resolution) {
+        List<StockCandleDTO> rolled = new ArrayList<>();
+        StockCandleDTO current = null;
+        LocalDate currentBucket = null;
+        for (StockCandleDTO day : daily) {
+            LocalDate bucket = bucketOf(LocalDate.parse(day.getStockCandleDay()), resolution);
+            if (current == null || !bucket.equals(currentBucket)) {
+                current = new StockCandleDTO();
+                current.setStockCode(day.getStockCode());
+                current.setStockCandleDay(day.getStockCandleDay());
+                current.setStockCandleOpen(day.getStockCandleOpen());
+                current.setStockCandleHigh(day.getStockCandleHigh());
+                current.setStockCandleLow(day.getStockCandleLow());
+                rolled.add(current);
+                currentBucket = bucket;
+            }
+            current.setStockCandleClose(day.getStockCandleClose());
+            current.setStockCandleHigh(Math.max(current.getStockCandleHigh(), day.getStockCandleHigh()));
+            current.setStockCandleLow(Math.min(current.getStockCandleLow(), day.getStockCandleLow()));
+            current.setStockCandleVolume(current.getStockCandleVolume() + day.getStockCandleVolume());
+        }
+        return rolled;
+    }
+
+    private LocalDate bucketOf(LocalDate day, Resolution resolution) {
+        if (resolution == Resolution.WEEKLY) {
+            return day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+        return day.withDayOfMonth(1);
+    }
+
+    private String cacheKey(String stockCode, Resolution resolution) {
+        return stockCode + ':' + resolution;
+    }
+
     private LocalDate calculateStartDate(String period) {
         switch (period) {
             case "1day":
@@ -47,4 +228,14 @@ public class StockCandleService {
                 throw new IllegalArgumentException("Invalid period: " + period);
         }
     }
+
+    private static final class CachedCandles {
+        private final LocalDate builtOn;
+        private final List<StockCandleDTO> candles;
+
+        private CachedCandles(LocalDate builtOn, List<StockCandleDTO> candles) {
+            this.builtOn = builtOn;
+            this.candles = candles;
+        }
+    }
 }
@@ -0,0 +1,91 @@
+package com.kb.stock.service;
+
+import com.kb.stock.dto.StockDTO;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 시세 변경 감지
+ * 종목별로 마지막으로 저장/전송한 시세의 지문(현재가, 전일대비, 거래량, 고가, 저가)을 기억해 두고
+ * 새 시세의 지문이 같으면 저장과 전송을 건너뛸 수 있게 한다.
+ * 저장(DB, 최신가)과 전송(WebSocket)은 대상이 다르므로 지문을 따로 관리한다.
+ */
+@Component
+public class StockChangeDetector {
+
+    private final Map<String, Long> writeFingerprints = new ConcurrentHashMap<>();
+    private final Map<String, Long> broadcastFingerprints = new ConcurrentHashMap<>();
+
+    private final AtomicLong writeChecked = new AtomicLong();
+    private final AtomicLong writeSuppressed = new AtomicLong();
+    private final AtomicLong broadcastChecked = new AtomicLong();
+    private final AtomicLong broadcastSuppressed = new AtomicLong();
+
+    // DB 에 이미 저장된 시세로 지문을 채운다 (재시작 직후 같은 값을 다시 쓰지 않도록)
+    public void seed(StockDTO stock) {
+        writeFingerprints.put(stock.getStockCode(), fingerprint(stock));
+    }
+
+    // 저장할 필요가 있으면 true (마지막으로 저장한 시세와 다를 때)
+    public boolean shouldWrite(StockDTO stock) {
+        writeChecked.incrementAndGet();
+        if (isSame(writeFingerprints, stock)) {
+            writeSuppressed.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    // 전송할 필요가 있으면 true (마지막으로 전송한 시세와 다를 때)
+    public boolean shouldBroadcast(StockDTO stock) {
+        broadcastChecked.incrementAndGet();
+        if (isSame(broadcastFingerprints, stock)) {
+            broadcastSuppressed.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    // 저장에 실패한 종목은 다음 시세를 변경 여부와 상관없이 다시 저장하도록 지문을 지운다
+    public void forgetWrite(String stockCode) {
+        writeFingerprints.remove(stockCode);
+    }
+
+    public Map<String, Long> getMetrics() {
+        return Map.of(
+                "writeChecked", writeChecked.get(),
+                "writeSuppressed", writeSuppressed.get(),
+                "broadcastChecked", broadcastChecked.get(),
+                "broadcastSuppressed", broadcastSuppressed.get());
+    }
+
+    private static boolean isSame(Map<String, Long> fingerprints, StockDTO stock) {
+        long fingerprint = fingerprint(stock);
+        Long previous = fingerprints.put(stock.getStockCode(), fingerprint);
+        return previous != null && previous == fingerprint;
+    }
+
+    static long fingerprint(StockDTO stock) {
+        long hash = 17;
+        hash = mix(hash, fixed(stock.getCurrentPrice()));
+        hash = mix(hash, fixed(stock.getPriceChange()));
+        hash = mix(hash, stock.getVolume() != null ? stock.getVolume() : Long.MIN_VALUE);
+        hash = mix(hash, fixed(stock.getHighPrice()));
+        hash = mix(hash, fixed(stock.getLowPrice()));
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        hash ^= value + 0x9E3779B97F4A7C15L + (hash << 6) + (hash >>> 2);
+        return hash * 0xBF58476D1CE4E5B9L;
+    }
+
+    // 소수점 둘째 자리까지의 고정소수점 값
+    private static long fixed(BigDecimal value) {
+        return value != null ? value.movePointRight(2).longValue() : Long.MIN_VALUE;
+    }
+}
@@ -0,0 +1,93 @@
+package com.kb.stock.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 종목별 시세 조회 요청 합치기 (single-flight)
+ * 같은 종목을 동시에 조회하면 KIS 에는 한 번만 요청하고 기다리던 호출자들은 그 응답을 함께 받는다.
+ * stock.quote.fresh-ms 가 0 보다 크면 그 시간 안의 재조회도 직전 응답을 그대로 돌려준다.
+ * 응답 본문(byte[])은 여러 호출자가 공유하므로 읽기만 해야 한다.
+ */
+@Component
+public class StockQuoteCoalescer {
+
+    @Value("${stock.quote.fresh-ms:1000}")
+    private long freshMillis;
+
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, FreshQuote> recent = new ConcurrentHashMap<>();
+
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong freshHits = new AtomicLong();
+
+    public byte[] get(String stockCode, Function<String, byte[]> loader) {
+        if (freshMillis > 0) {
+            FreshQuote fresh = recent.get(stockCode);
+            if (fresh != null && System.nanoTime() - fresh.loadedAtNanos < TimeUnit.MILLISECONDS.toNanos(freshMillis)) {
+                freshHits.incrementAndGet();
+                return fresh.body;
+            }
+        }
+
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(stockCode, mine);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing);
+        }
+
+        try {
+            loads.incrementAndGet();
+            byte[] body = loader.apply(stockCode);
+            if (body != null && freshMillis > 0) {
+                recent.put(stockCode, new FreshQuote(body, System.nanoTime()));
+            }
+            mine.complete(body);
+            return body;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(stockCode, mine);
+        }
+    }
+
+    public Map<String, Long> getMetrics() {
+        return Map.of(
+                "quoteLoads", loads.get(),
+                "quoteCoalesced", coalesced.get(),
+                "quoteFreshHits", freshHits.get());
+    }
+
+    private byte[] await(CompletableFuture<byte[]> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // 요청을 실제로 보낸 호출자가 예외를 기록하므로 기다리던 쪽은 실패(null)로만 처리
+            return null;
+        }
+    }
+
+    private static final class FreshQuote {
+        private final byte[] body;
+        private final long loadedAtNanos;
+
+        private FreshQuote(byte[] body, long loadedAtNanos) {
+            this.body = body;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+    }
+}
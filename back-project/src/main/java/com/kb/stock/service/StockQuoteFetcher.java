@@ -0,0 +1,139 @@
+package com.kb.stock.service;
+
+import com.kb.stock.dto.StockSweepStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * 시세 조회 엔진
+ * 고정 크기 작업 스레드 풀로 종목을 병렬 조회하고, 토큰 버킷으로 KIS 초당 호출 한도를 지킨다.
+ */
+@Component
+public class StockQuoteFetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockQuoteFetcher.class);
+
+    private static final long THROTTLE_PENALTY_MS = 1000;
+
+    @Autowired
+    private KisCredentialPool credentialPool;
+
+    @Value("${kis.api.fetch-threads:8}")
+    private int fetchThreads;
+
+    private ExecutorService executor;
+
+    private final AtomicInteger throttledRetries = new AtomicInteger();
+    private final AtomicBoolean sweepRunning = new AtomicBoolean(false);
+    private volatile StockSweepStats lastSweepStats;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(fetchThreads, new CustomizableThreadFactory("kis-fetch-"));
+        logger.info("StockQuoteFetcher initialized: {} threads, {} app keys, {} requests/sec total",
+                fetchThreads, credentialPool.size(), credentialPool.getTotalRequestsPerSecond());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // KIS API 호출 직전에 반드시 호출. 이번 호출에 사용할 앱키를 반환한다
+    public KisCredential acquirePermit(String stockCode) throws InterruptedException {
+        return credentialPool.acquire(stockCode);
+    }
+
+    // 호출 한도 초과 응답을 받으면 호출해서 해당 앱키를 잠시 쉬게 한다
+    public void recordThrottled(KisCredential credential) {
+        throttledRetries.incrementAndGet();
+        credential.markThrottled(THROTTLE_PENALTY_MS);
+    }
+
+    /**
+     * 전체 종목 시세 갱신
+     * @param stockCodes 갱신할 종목 코드
+     * @param task 종목 하나를 조회/저장하고 성공 여부를 반환하는 작업
+     * @return 갱신 통계, 이전 갱신이 아직 진행 중이면 null
+     */
+    public StockSweepStats sweep(List<String> stockCodes, Predicate<String> task) {
+        if (!sweepRunning.compareAndSet(false, true)) {
+            logger.warn("Previous sweep still running, skipping this one");
+            return null;
+        }
+
+        try {
+            LocalDateTime startedAt = LocalDateTime.now();
+            int throttledBefore = throttledRetries.get();
+            long startNanos = System.nanoTime();
+
+            List<Future<Boolean>> futures = new ArrayList<>(stockCodes.size());
+            for (String stockCode : stockCodes) {
+                futures.add(executor.submit(() -> task.test(stockCode)));
+            }
+
+            int successCount = 0;
+            int failureCount = 0;
+            for (Future<Boolean> future : futures) {
+                try {
+                    if (Boolean.TRUE.equals(future.get())) {
+                        successCount++;
+                    } else {
+                        failureCount++;
+                    }
+                } catch (ExecutionException e) {
+                    failureCount++;
+                    logger.error("Sweep task failed: {}", e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    futures.forEach(f -> f.cancel(true));
+                    logger.error("Sweep interrupted", e);
+                    break;
+                }
+            }
+
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+            StockSweepStats stats = new StockSweepStats();
+            stats.setStartedAt(startedAt);
+            stats.setTotalCount(stockCodes.size());
+            stats.setSuccessCount(successCount);
+            stats.setFailureCount(failureCount);
+            stats.setThrottledRetries(throttledRetries.get() - throttledBefore);
+            stats.setElapsedMs(elapsedMs);
+            stats.setQuotesPerSecond(elapsedMs > 0 ? (successCount + failureCount) * 1000.0 / elapsedMs : 0);
+
+            logger.info("Sweep finished: {} stocks, {} ok, {} failed, {} throttled retries in {} ms ({} quotes/sec)",
+                    stats.getTotalCount(), successCount, failureCount, stats.getThrottledRetries(),
+                    elapsedMs, String.format("%.1f", stats.getQuotesPerSecond()));
+
+            lastSweepStats = stats;
+            return stats;
+        } finally {
+            sweepRunning.set(false);
+        }
+    }
+
+    // 초당 호출 가능한 총 건수
+    public double getRequestsPerSecond() {
+        return credentialPool.getTotalRequestsPerSecond();
+    }
+
+    public StockSweepStats getLastSweepStats() {
+        return lastSweepStats;
+    }
+}
@@ -1,7 +1,19 @@
 package com.kb.stock.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kb.stock.cache.InMemoryStockCache;
+import com.kb.stock.cache.RedisQuoteStore;
+import com.kb.stock.cache.RedisSubscriptionSync;
+import com.kb.stock.cache.StockTickBuffer;
+import com.kb.stock.cache.StockNameDictionary;
+import com.kb.stock.dto.KisQuote;
+import com.kb.stock.dto.KisTick;
+import com.kb.stock.dto.StockChangesDTO;
 import com.kb.stock.dto.StockDTO;
+import com.kb.stock.dto.StockSweepStats;
+import com.kb.stock.dto.StockTicksDTO;
 import com.kb.stock.mapper.StockMapper;
+import com.kb.stock.handler.StockBroadcastConflator;
 import com.kb.stock.handler.StockWebSocketHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,11 +22,13 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
 import javax.annotation.PostConstruct;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -30,32 +44,67 @@ public class StockService {
     @Autowired
     private TokenService tokenService;
 
-    @Value("${kis.api.appkey}")
-    private String appKey;
+    @Autowired
+    private StockQuoteFetcher quoteFetcher;
+
+    @Autowired
+    private StockWriteBehindBuffer writeBehindBuffer;
+
+    @Autowired
+    private StockNameDictionary stockNameDictionary;
+
+    @Autowired
+    private InMemoryStockCache stockCache;
+
+    @Autowired
+    private KisQuoteDecoder quoteDecoder;
+
+    @Autowired
+    private StockChangeDetector changeDetector;
+
+    @Autowired
+    private StockQuoteCoalescer quoteCoalescer;
+
+    @Autowired
+    private KisRealtimeClient realtimeClient;
+
+    @Autowired
+    private StockSubscriptionRegistry subscriptionRegistry;
+
+    @Autowired
+    private StockBroadcastConflator broadcastConflator;
+
+    @Autowired
+    private RedisQuoteStore redisQuoteStore;
 
-    @Value("${kis.api.secretkey}")
-    private String appSecret;
+    @Autowired
+    private RedisSubscriptionSync redisSubscriptionSync;
+
+    @Autowired
+    private StockTickBuffer tickBuffer;
 
     @Value("${kis.api.base-url}")
     private String baseUrl;
 
     private final RestTemplate restTemplate = new RestTemplate();
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     private static final int MAX_RETRIES = 3;
     private static final long RETRY_DELAY_MS = 1500;
-    private static final int REQUESTS_PER_SECOND = 10;
-    private static final long REQUEST_INTERVAL_MS = 1500 / REQUESTS_PER_SECOND;
+    private static final String THROTTLED_MSG_CODE = "EGW00201";
 
     private StockWebSocketHandler webSocketHandler;
-    private final Set<String> subscribedStocks = ConcurrentHashMap.newKeySet();
-
-    @Autowired
-    private WebSocketService webSocketService;
 
     @PostConstruct
     public void init() {
+        if (redisQuoteStore.isReplica()) {
+            // 시세 수집은 primary 노드 몫, 이 노드는 Redis 스냅샷만 제공
+            logger.info("Redis replica node: skipping database seed and fallback polling");
+            return;
+        }
         int result = stockMapper.checkDatabaseConnection();
         logger.info("Database connection check result: {}", result);
+        seedChangeDetector();
         startRealTimeUpdates();
     }
 
@@ -65,103 +114,184 @@ public class StockService {
         this.webSocketHandler = webSocketHandler;
     }
 
+    // 구독자 한 명 추가 (첫 구독자면 실시간 등록이 시작된다)
     public void addSubscription(String stockCode) {
-        subscribedStocks.add(stockCode);
+        subscriptionRegistry.acquire(stockCode);
     }
 
+    // 구독자 한 명 제거 (마지막 구독자가 빠지면 실시간 등록이 해제된다)
     public void removeSubscription(String stockCode) {
-        subscribedStocks.remove(stockCode);
+        subscriptionRegistry.release(stockCode);
     }
 
-    public void updateAllStocks() {
+    public Set<String> getSubscribedStocks() {
+        return subscriptionRegistry.getSubscribedStocks();
+    }
+
+    // 전체 종목 시세 갱신 (종목 목록 조회에 실패했거나 다른 조회가 진행 중이라 실행하지 못했으면 null)
+    public StockSweepStats updateAllStocks() {
         logger.info("Starting updateAllStocks method");
         List<String> stockCodes;
         try {
-            stockCodes = stockMapper.selectAllStockCodes();
+            stockCodes = getAllStockCodes();
         } catch (Exception e) {
             logger.error("Error fetching stock codes from database: {}", e.getMessage(), e);
-            return;
+            return null;
         }
 
-        logger.info("Retrieved {} stock codes from database", stockCodes.size());
+        logger.info("Retrieved {} stock codes", stockCodes.size());
+        StockSweepStats stats = updateStocks(stockCodes);
+        logger.info("Finished updateAllStocks method");
+        return stats;
+    }
+
+    // 지정한 종목들만 시세 갱신
+    public StockSweepStats updateStocks(List<String> stockCodes) {
+        return quoteFetcher.sweep(stockCodes, this::refreshStock);
+    }
 
-        for (int i = 0; i < stockCodes.size(); i += 10) {
-            List<String> batch = stockCodes.subList(i, Math.min(i + 10, stockCodes.size()));
-            processStockBatch(batch, i / 10 + 1);
+    public StockSweepStats getLastSweepStats() {
+        return quoteFetcher.getLastSweepStats();
+    }
 
-            try {
-                Thread.sleep(REQUEST_INTERVAL_MS * 20);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error("Thread interrupted while waiting for next batch", e);
-            }
+    // 시세 수집 지표 (변경 없는 시세로 건너뛴 저장/전송 횟수, write-behind 버퍼 상태)
+    public Map<String, Object> getIngestMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>(changeDetector.getMetrics());
+        metrics.putAll(quoteCoalescer.getMetrics());
+        metrics.putAll(realtimeClient.getMetrics());
+        metrics.putAll(broadcastConflator.getMetrics());
+        metrics.putAll(redisQuoteStore.getMetrics());
+        metrics.putAll(redisSubscriptionSync.getMetrics());
+        metrics.putAll(tickBuffer.getMetrics());
+        metrics.put("writeBehindPending", writeBehindBuffer.getPendingCount());
+        metrics.put("writeBehindCoalesced", writeBehindBuffer.getCoalescedCount());
+        metrics.put("writeBehindWritten", writeBehindBuffer.getWrittenCount());
+        return metrics;
+    }
+
+    // DB 에 저장된 마지막 시세로 변경 감지 지문을 채운다
+    private void seedChangeDetector() {
+        try {
+            List<StockDTO> stocks = stockMapper.selectAllStocks();
+            stocks.forEach(changeDetector::seed);
+            logger.info("Seeded change detector with {} stocks", stocks.size());
+        } catch (Exception e) {
+            logger.error("Error seeding change detector: {}", e.getMessage(), e);
         }
-        logger.info("Finished updateAllStocks method");
     }
 
-    // 주식 배치 처리
-    private void processStockBatch(List<String> stockCodes, int batchNumber) {
-        long batchStartTime = System.currentTimeMillis(); // 배치 시작 시간
+    // 종목 하나의 시세를 조회해 저장하고 성공 여부를 반환
+    private boolean refreshStock(String stockCode) {
+        long stockStartTime = System.currentTimeMillis();
 
-        for (String stockCode : stockCodes) {
-            long stockStartTime = System.currentTimeMillis(); // 각 주식 코드 시작 시간
+        try {
+            KisQuote quote = getQuote(stockCode);
+            if (quote == null) {
+                logger.warn("No stock data retrieved for stock {} in {} ms", stockCode, System.currentTimeMillis() - stockStartTime);
+                return false;
+            }
 
-            try {
-                Map<String, Object> stockData = getStockPrice(stockCode);
-                if (stockData != null) {
-                    StockDTO stockDTO = mapToStockDTO(stockData);
-                    if (stockDTO != null) {
-                        upsertStockData(stockDTO);
-                        webSocketService.updateLastPrices(stockDTO.getStockCode(), stockDTO.getCurrentPrice().doubleValue());
-                        logger.info("Batch {}, Stock {} successfully updated in {} ms", batchNumber, stockCode, System.currentTimeMillis() - stockStartTime);
-                    } else {
-                        logger.warn("Batch {}, Stock {} data incomplete in {} ms", batchNumber, stockCode, System.currentTimeMillis() - stockStartTime);
-                    }
-                } else {
-                    logger.warn("Batch {}, No stock data retrieved for stock {} in {} ms", batchNumber, stockCode, System.currentTimeMillis() - stockStartTime);
-                }
+            StockDTO stockDTO = mapToStockDTO(quote);
+            if (stockDTO == null) {
+                logger.warn("Stock {} data incomplete in {} ms", stockCode, System.currentTimeMillis() - stockStartTime);
+                return false;
+            }
 
-            } catch (Exception e) {
-                logger.error("Batch {}, Error processing stock {}: {}", batchNumber, stockCode, e.getMessage());
+            if (!changeDetector.shouldWrite(stockDTO)) {
+                logger.debug("Stock {} unchanged, skipping write", stockCode);
+                return true;
             }
-        }
 
-        long batchEndTime = System.currentTimeMillis(); // 배치 종료 시간
-        logger.info("Batch {} processed in {} ms", batchNumber, batchEndTime - batchStartTime);
+            if (!writeBehindBuffer.offer(stockDTO)) {
+                changeDetector.forgetWrite(stockCode);
+                logger.warn("Write-behind buffer full, dropping update for stock {}", stockCode);
+                return false;
+            }
+            stockCache.updateStockData(stockDTO);
+            logger.debug("Stock {} successfully updated in {} ms", stockCode, System.currentTimeMillis() - stockStartTime);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            logger.error("Error processing stock {}: {}", stockCode, e.getMessage());
+            return false;
+        }
     }
 
+    // 원본 응답의 output 을 Map 으로 반환 (StockListService 용)
     public Map<String, Object> getStockPrice(String stockCode) {
-        logger.info("Attempting to get stock price for code: {}", stockCode);
+        byte[] body = quoteCoalescer.get(stockCode, this::requestStockPrice);
+        if (body == null) {
+            return null;
+        }
+        try {
+            Map<String, Object> response = objectMapper.readValue(body, Map.class);
+            return (Map<String, Object>) response.get("output");
+        } catch (IOException e) {
+            logger.error("Error parsing stock price response for code {}: {}", stockCode, e.getMessage());
+            return null;
+        }
+    }
+
+    // 응답을 스트리밍 디코더로 바로 KisQuote 로 변환
+    public KisQuote getQuote(String stockCode) {
+        byte[] body = quoteCoalescer.get(stockCode, this::requestStockPrice);
+        if (body == null) {
+            return null;
+        }
+        try {
+            KisQuote quote = quoteDecoder.decode(body);
+            if (quote == null) {
+                logger.warn("No output in stock price response for code {}: {}", stockCode, new String(body, StandardCharsets.UTF_8));
+            }
+            return quote;
+        } catch (IOException e) {
+            logger.error("Error decoding stock price response for code {}: {}", stockCode, e.getMessage());
+            return null;
+        }
+    }
+
+    // 주식현재가 시세 API 호출 (호출 한도 대기 및 재시도 포함), 응답 본문을 그대로 반환
+    // 같은 종목의 동시 호출은 StockQuoteCoalescer 가 한 번으로 합친다
+    private byte[] requestStockPrice(String stockCode) {
+        logger.debug("Attempting to get stock price for code: {}", stockCode);
 
         for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
+            KisCredential credential = null;
             try {
-                String accessToken = tokenService.getAccessToken();
-                logger.info("Retrieved access token: {}", accessToken);
+                credential = quoteFetcher.acquirePermit(stockCode);
+                String accessToken = tokenService.getAccessToken(credential);
 
                 String url = baseUrl + "/uapi/domestic-stock/v1/quotations/inquire-price?FID_COND_MRKT_DIV_CODE=J&FID_INPUT_ISCD=" + stockCode;
-                logger.info("API request URL: {}", url);
+                logger.debug("API request URL: {}", url);
 
                 HttpHeaders headers = new HttpHeaders();
                 headers.set("Content-Type", "application/json; charset=utf-8");
                 headers.set("authorization", "Bearer " + accessToken);
-                headers.set("appkey", appKey);
-                headers.set("appsecret", appSecret);
+                headers.set("appkey", credential.getAppKey());
+                headers.set("appsecret", credential.getAppSecret());
                 headers.set("tr_id", "FHKST01010100");
 
                 HttpEntity<String> request = new HttpEntity<>(headers);
 
-                ResponseEntity<Map> response = restTemplate.exchange(url, HttpMethod.GET, request, Map.class);
-                logger.info("API response for stock code {}: Status={}, Body={}", stockCode, response.getStatusCode(), response.getBody());
-
-                if (response.getStatusCode() == HttpStatus.OK) {
-                    logger.info("API response body: {}", response.getBody());
-                    return (Map<String, Object>) response.getBody().get("output");
+                ResponseEntity<byte[]> response = restTemplate.exchange(url, HttpMethod.GET, request, byte[].class);
+                logger.debug("API response for stock code {}: Status={}", stockCode, response.getStatusCode());
 
+                if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+                    return response.getBody();
                 } else {
                     logger.error("Failed to retrieve stock data for {}. Status code: {}", stockCode, response.getStatusCode());
                 }
-            } catch (HttpClientErrorException e) {
-                logger.error("HTTP client error occurred: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while waiting for rate limit permit: {}", stockCode);
+                return null;
+            } catch (HttpStatusCodeException e) {
+                logger.error("HTTP error occurred: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
+                if (isThrottled(e)) {
+                    quoteFetcher.recordThrottled(credential);
+                }
                 if (attempt < MAX_RETRIES - 1) {
                     try {
                         TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MS);
@@ -183,39 +313,21 @@ public class StockService {
         return null;
     }
 
-    private StockDTO mapToStockDTO(Map<String, Object> stockData) {
-        logger.info("Mapping stock data to StockDTO: {}", stockData);
-        if (stockData == null) {
+    // 호출 한도 초과 응답 (HTTP 429 또는 KIS 오류 코드 EGW00201)
+    private boolean isThrottled(HttpStatusCodeException e) {
+        return e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS
+                || e.getResponseBodyAsString().contains(THROTTLED_MSG_CODE);
+    }
+
+    private StockDTO mapToStockDTO(KisQuote quote) {
+        if (quote == null) {
             return null;
         }
 
-        try {
-            String stockCode = (String) stockData.get("stck_shrn_iscd");
-            String stockName = stockMapper.selectStockNameByCode(stockCode);
+        StockDTO stockDTO = KisQuoteDecoder.toStockDTO(quote, stockNameDictionary.getStockName(quote.getStockCode()));
 
-            StockDTO stockDTO = new StockDTO();
-            stockDTO.setStockCode(stockCode);
-            stockDTO.setStockName(stockName != null ? stockName : "");
-            stockDTO.setCurrentPrice(stockData.get("stck_prpr") != null ? new BigDecimal(stockData.get("stck_prpr").toString()) : BigDecimal.ZERO);
-            stockDTO.setPriceChange(stockData.get("prdy_vrss") != null ? new BigDecimal(stockData.get("prdy_vrss").toString()) : BigDecimal.ZERO);
-            stockDTO.setPriceChangePct(stockData.get("prdy_ctrt") != null ? new BigDecimal(stockData.get("prdy_ctrt").toString()) : BigDecimal.ZERO);
-            stockDTO.setHighPrice(stockData.get("stck_hgpr") != null ? new BigDecimal(stockData.get("stck_hgpr").toString()) : BigDecimal.ZERO);
-            stockDTO.setLowPrice(stockData.get("stck_lwpr") != null ? new BigDecimal(stockData.get("stck_lwpr").toString()) : BigDecimal.ZERO);
-            stockDTO.setOpeningPrice(stockData.get("stck_oprc") != null ? new BigDecimal(stockData.get("stck_oprc").toString()) : BigDecimal.ZERO);
-            stockDTO.setIndustry(stockData.get("bstp_kor_isnm") != null ? stockData.get("bstp_kor_isnm").toString() : "");
-            stockDTO.setVolume(stockData.get("acml_vol") != null ? Long.parseLong(stockData.get("acml_vol").toString()) : 0L);
-            stockDTO.setHtsAvls(stockData.get("hts_avls") != null ? new BigDecimal(stockData.get("hts_avls").toString()) : BigDecimal.ZERO); // HTS 시가총액 추가
-            stockDTO.setW52Hgpr(stockData.get("w52_hgpr") != null ? new BigDecimal(stockData.get("w52_hgpr").toString()) : BigDecimal.ZERO); // 52주일 최고가 추가
-            stockDTO.setW52Lwpr(stockData.get("w52_lwpr") != null ? new BigDecimal(stockData.get("w52_lwpr").toString()) : BigDecimal.ZERO); // 52주일 최저가 추가
-            stockDTO.setAcmlTrPbmn(stockData.get("acml_tr_pbmn") != null ? new BigDecimal(stockData.get("acml_tr_pbmn").toString()) : BigDecimal.ZERO); // acml_tr_pbmn 시가총액 추가
-
-            logger.info("Stock data received: {}", stockData);
-            logger.info("Mapped StockDTO: {}", stockDTO);
-            return stockDTO;
-        } catch (Exception e) {
-            logger.error("Error mapping stock data to StockDTO: {}", e.getMessage(), e);
-            return null;
-        }
+        logger.debug("Mapped StockDTO: {}", stockDTO);
+        return stockDTO;
     }
 
     public void upsertStockData(StockDTO stockData) {
@@ -229,27 +341,125 @@ public class StockService {
     }
 
     public List<String> getAllStockCodes() {
-        return stockMapper.selectAllStockCodes();
+        List<String> stockCodes = stockNameDictionary.getStockCodes();
+        return stockCodes.isEmpty() ? stockMapper.selectAllStockCodes() : stockCodes;
     }
 
+    // 캐시 스냅샷의 전 종목 시세 (캐시가 비어 있을 때만 DB 조회)
     public List<StockDTO> getAllStocks() {
-        return stockMapper.selectAllStocks();
+        List<StockDTO> stocks = stockCache.getSnapshot().getStockList();
+        return stocks.isEmpty() ? stockMapper.selectAllStocks() : stocks;
     }
 
+    // since 버전 이후 바뀐 종목 (epoch 가 다르거나 변경 기록 범위를 벗어나면 전체)
+    public StockChangesDTO getChangesSince(String epoch, long since) {
+        return stockCache.getChangesSince(epoch, since);
+    }
+
+    // 오늘 정규장 이후 종목의 시세 기록 (fromMillis 초과)
+    public StockTicksDTO getTicks(String stockCode, long fromMillis) {
+        return tickBuffer.getTicks(stockCode, fromMillis);
+    }
+
+    // KIS 에서 현재가를 바로 조회
     public StockDTO getStockData(String stockCode) {
-        Map<String, Object> stockData = getStockPrice(stockCode);
-        return mapToStockDTO(stockData);
+        return mapToStockDTO(getQuote(stockCode));
+    }
+
+    // 캐시에 있으면 캐시에서, 없으면 KIS 에서 조회해 캐시에 넣는다
+    public StockDTO getCachedStockData(String stockCode) {
+        StockDTO cached = stockCache.getStockData(stockCode);
+        if (cached != null) {
+            return cached;
+        }
+        StockDTO stockData = getStockData(stockCode);
+        if (stockData != null) {
+            stockCache.updateStockData(stockData);
+        }
+        return stockData;
     }
 
+    /**
+     * KIS 실시간 체결가 한 건 반영
+     * 체결가에 없는 시가총액, 52주 최고/최저가, 업종은 마지막으로 알고 있는 시세에서 가져온다.
+     */
+    public void applyTick(KisTick tick) {
+        StockDTO base = stockCache.getStockData(tick.getStockCode());
+        StockDTO stockDTO = mapToStockDTO(tick, base);
+
+        stockCache.updateStockData(stockDTO);
+
+        // 기준 시세가 없으면 시가총액 등이 비어 있으므로 DB 에는 쓰지 않고 전송만 한다
+        if (base != null && changeDetector.shouldWrite(stockDTO)) {
+            try {
+                if (!writeBehindBuffer.offer(stockDTO)) {
+                    changeDetector.forgetWrite(stockDTO.getStockCode());
+                    logger.warn("Write-behind buffer full, dropping tick for stock {}", stockDTO.getStockCode());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                changeDetector.forgetWrite(stockDTO.getStockCode());
+            }
+        }
+        if (changeDetector.shouldBroadcast(stockDTO)) {
+            broadcastConflator.publish(stockDTO);
+        }
+    }
+
+    private StockDTO mapToStockDTO(KisTick tick, StockDTO base) {
+        StockDTO stockDTO = new StockDTO();
+        stockDTO.setStockCode(tick.getStockCode());
+        if (base != null) {
+            stockDTO.setStockName(base.getStockName());
+            stockDTO.setIndustry(base.getIndustry());
+            stockDTO.setHtsAvls(base.getHtsAvls());
+            stockDTO.setW52Hgpr(base.getW52Hgpr());
+            stockDTO.setW52Lwpr(base.getW52Lwpr());
+            stockDTO.setInvestmentCategory(base.getInvestmentCategory());
+        } else {
+            String stockName = stockNameDictionary.getStockName(tick.getStockCode());
+            stockDTO.setStockName(stockName != null ? stockName : "");
+            stockDTO.setIndustry("");
+        }
+        stockDTO.setCurrentPrice(BigDecimal.valueOf(tick.getCurrentPrice()));
+        stockDTO.setPriceChange(BigDecimal.valueOf(tick.getPriceChange()));
+        stockDTO.setPriceChangePct(BigDecimal.valueOf(tick.getPriceChangePctX100(), 2));
+        stockDTO.setHighPrice(BigDecimal.valueOf(tick.getHighPrice()));
+        stockDTO.setLowPrice(BigDecimal.valueOf(tick.getLowPrice()));
+        stockDTO.setOpeningPrice(BigDecimal.valueOf(tick.getOpeningPrice()));
+        stockDTO.setVolume(tick.getVolume());
+        stockDTO.setAcmlTrPbmn(BigDecimal.valueOf(tick.getAcmlTrPbmn()));
+        return stockDTO;
+    }
+
+    /**
+     * 실시간 체결가를 받지 못하는 구독 종목만 REST 로 보충 조회
+     * (KIS 실시간 연결이 끊겼거나 등록 한도를 넘은 종목)
+     */
     public void startRealTimeUpdates() {
-        new Thread(() -> {
+        Thread poller = new Thread(() -> {
             while (true) {
-                for (String stockCode : subscribedStocks) {
+                for (String stockCode : subscriptionRegistry.getSubscribedStocks()) {
+                    if (realtimeClient.isStreaming(stockCode)) {
+                        continue;
+                    }
                     try {
                         StockDTO stockData = getStockData(stockCode);
-                        if (stockData != null && webSocketHandler != null) {
-                            webSocketHandler.sendStockData(stockCode, stockData);
+                        if (stockData == null) {
+                            continue;
                         }
+                        // 정기 조회와 같이 DB 에도 쓴다 (캐시만 바뀌고 DB 가 뒤처지지 않도록)
+                        if (changeDetector.shouldWrite(stockData) && !writeBehindBuffer.offer(stockData)) {
+                            changeDetector.forgetWrite(stockCode);
+                            logger.warn("Write-behind buffer full, dropping fallback update for stock {}", stockCode);
+                        }
+                        if (changeDetector.shouldBroadcast(stockData)) {
+                            stockCache.updateStockData(stockData);
+                            broadcastConflator.publish(stockData);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
                     } catch (Exception e) {
                         logger.error("Error updating stock data for {}: {}", stockCode, e.getMessage());
                     }
@@ -261,7 +471,9 @@ public class StockService {
                     break;
                 }
             }
-        }).start();
+        }, "stock-fallback-poller");
+        poller.setDaemon(true);
+        poller.start();
     }
 
     // 안정성 중심 주식 조회
@@ -0,0 +1,297 @@
+package com.kb.stock.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kb.stock.cache.InMemoryStockCache;
+import com.kb.stock.dto.StockChangesDTO;
+import com.kb.stock.dto.StockDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-Sent Events 시세 스트림 (/api/stocks/stream)
+ * WebSocket 없이 EventSource 로 받을 수 있는 가벼운 구독 경로다.
+ * 시세 캐시의 버전을 이벤트 id 로 쓰므로 브라우저가 재연결하며 보내는 Last-Event-ID 부터
+ * 바뀐 종목만 이어서 보내고, 변경 기록 범위를 벗어났으면 요청한 종목 전체를 다시 보낸다.
+ * 연결마다 요청한 종목을 구독 레지스트리에 올려 실시간 체결가 수집 대상이 되게 한다.
+ *
+ * SseEmitter.send 는 막히는(blocking) 쓰기라 스케줄러 스레드에서 직접 보내지 않는다.
+ * 연결마다 이벤트 큐(stock.sse.buffer-size)를 두고 전송 풀 스레드 하나가 차례로 비운다.
+ * 큐가 넘치거나 한 번의 전송이 stock.sse.send-time-limit-ms 를 넘긴 느린 연결은 끊는다
+ * (WebSocket 의 ConcurrentWebSocketSessionDecorator 와 같은 기준).
+ */
+@Service
+public class StockStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockStreamService.class);
+
+    private static final String EVENT_NAME = "quotes";
+
+    @Autowired
+    private InMemoryStockCache stockCache;
+
+    @Autowired
+    private StockSubscriptionRegistry subscriptionRegistry;
+
+    @Value("${stock.sse.max-connections:500}")
+    private int maxConnections;
+
+    @Value("${stock.sse.max-codes:50}")
+    private int maxCodesPerConnection;
+
+    @Value("${stock.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${stock.sse.send-time-limit-ms:10000}")
+    private long sendTimeLimitMs;
+
+    @Value("${stock.sse.buffer-size:32}")
+    private int bufferSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    // 마지막으로 전송한 캐시 버전 (전송 스케줄러 스레드에서만 갱신)
+    private volatile long lastBroadcastVersion = -1;
+
+    // 연결마다 동시에 최대 한 스레드만 쓰므로 최대 연결 수만큼이면 거절되지 않는다
+    private ExecutorService sendExecutor;
+
+    @PostConstruct
+    public void init() {
+        sendExecutor = new ThreadPoolExecutor(0, Math.max(1, maxConnections), 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new CustomizableThreadFactory("sse-send-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * 새 스트림 연결
+     * 종목 수나 동시 연결 수 한도를 넘으면 IllegalArgumentException / IllegalStateException
+     */
+    public SseEmitter open(Collection<String> stockCodes, String lastEventId) {
+        Set<String> codes = new LinkedHashSet<>();
+        for (String stockCode : stockCodes) {
+            if (stockCode != null && !stockCode.trim().isEmpty()) {
+                codes.add(stockCode.trim());
+            }
+        }
+        if (codes.isEmpty()) {
+            throw new IllegalArgumentException("No stock codes requested");
+        }
+        if (codes.size() > maxCodesPerConnection) {
+            throw new IllegalArgumentException("Too many stock codes: " + codes.size() + " (max " + maxCodesPerConnection + ")");
+        }
+        if (connections.size() >= maxConnections) {
+            throw new IllegalStateException("Too many stream connections (max " + maxConnections + ")");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Connection connection = new Connection(emitter, Collections.unmodifiableSet(codes));
+        emitter.onCompletion(connection::close);
+        emitter.onTimeout(connection::close);
+        emitter.onError(e -> connection.close());
+
+        codes.forEach(subscriptionRegistry::acquire);
+        connections.add(connection);
+
+        // 재연결이면 놓친 변경분만, 처음이면 요청한 종목의 현재 시세 전체
+        StockChangesDTO changes = resumeFrom(lastEventId);
+        List<StockDTO> initial = filter(changes.getStocks(), codes);
+        if (!initial.isEmpty() || lastEventId == null) {
+            send(connection, changes.getVersion(), initial);
+        }
+        logger.debug("SSE stream opened for {} stocks (resume from {}, {} connections)", codes.size(), lastEventId, connections.size());
+        return emitter;
+    }
+
+    // 직전 전송 이후 바뀐 종목을 연결마다 걸러서 한 이벤트로 보낸다
+    @Scheduled(fixedDelayString = "${stock.sse.interval-ms:500}")
+    public void broadcast() {
+        if (connections.isEmpty()) {
+            lastBroadcastVersion = stockCache.getVersion();
+            return;
+        }
+        StockChangesDTO changes = stockCache.getChangesSince(lastBroadcastVersion);
+        lastBroadcastVersion = changes.getVersion();
+        if (changes.getStocks().isEmpty()) {
+            return;
+        }
+
+        Map<String, StockDTO> changed = new HashMap<>(changes.getStocks().size() * 2);
+        for (StockDTO stockData : changes.getStocks()) {
+            changed.put(stockData.getStockCode(), stockData);
+        }
+        for (Connection connection : connections) {
+            List<StockDTO> stocks = new ArrayList<>();
+            for (String stockCode : connection.stockCodes) {
+                StockDTO stockData = changed.get(stockCode);
+                if (stockData != null) {
+                    stocks.add(stockData);
+                }
+            }
+            if (!stocks.isEmpty()) {
+                send(connection, changes.getVersion(), stocks);
+            }
+        }
+    }
+
+    // 프록시나 로드밸런서가 유휴 연결을 끊지 않도록 주석 이벤트 전송
+    @Scheduled(fixedDelayString = "${stock.sse.heartbeat-ms:15000}")
+    public void heartbeat() {
+        for (Connection connection : connections) {
+            connection.enqueue(SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    private void send(Connection connection, long version, List<StockDTO> stocks) {
+        try {
+            String json = objectMapper.writeValueAsString(stocks);
+            connection.enqueue(SseEmitter.event()
+                    .id(stockCache.getEpoch() + ':' + version)
+                    .name(EVENT_NAME)
+                    .data(json, MediaType.APPLICATION_JSON));
+        } catch (JsonProcessingException e) {
+            logger.error("Error serialising stock data for SSE", e);
+        }
+    }
+
+    private List<StockDTO> filter(List<StockDTO> stocks, Set<String> stockCodes) {
+        List<StockDTO> filtered = new ArrayList<>();
+        for (StockDTO stockData : stocks) {
+            if (stockCodes.contains(stockData.getStockCode())) {
+                filtered.add(stockData);
+            }
+        }
+        return filtered;
+    }
+
+    // 이벤트 ID 는 {epoch}:{버전}. 다른 프로세스가 보낸 ID 이거나 형식이 다르면 전체 시세부터 다시 보낸다
+    private StockChangesDTO resumeFrom(String lastEventId) {
+        if (lastEventId != null) {
+            int separator = lastEventId.indexOf(':');
+            if (separator > 0) {
+                try {
+                    return stockCache.getChangesSince(lastEventId.substring(0, separator).trim(),
+                            Long.parseLong(lastEventId.substring(separator + 1).trim()));
+                } catch (NumberFormatException e) {
+                    // 전체
+                }
+            }
+        }
+        return stockCache.getChangesSince(-1);
+    }
+
+    private final class Connection {
+        private final SseEmitter emitter;
+        private final Set<String> stockCodes;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final Deque<SseEmitter.SseEventBuilder> queue = new ArrayDeque<>();
+        private boolean draining;                 // queue 로 동기화
+        private volatile long sendStartedNanos;   // 전송 중이면 시작 시각, 아니면 0
+
+        private Connection(SseEmitter emitter, Set<String> stockCodes) {
+            this.emitter = emitter;
+            this.stockCodes = stockCodes;
+        }
+
+        // 이벤트를 큐에 넣고 전송 중이 아니면 전송 풀에 비우기를 맡긴다
+        private void enqueue(SseEmitter.SseEventBuilder event) {
+            if (closed.get()) {
+                return;
+            }
+            long started = sendStartedNanos;
+            if (started != 0 && System.nanoTime() - started > TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs)) {
+                fail(new IOException("SSE send time limit exceeded (" + sendTimeLimitMs + " ms)"));
+                return;
+            }
+            boolean overflow;
+            synchronized (queue) {
+                overflow = queue.size() >= bufferSize;
+                if (!overflow) {
+                    queue.add(event);
+                    if (draining) {
+                        return;
+                    }
+                    draining = true;
+                }
+            }
+            if (overflow) {
+                // 받는 속도가 못 따라오는 연결 (재연결하면 Last-Event-ID 로 이어 받는다)
+                fail(new IOException("SSE buffer size exceeded (" + bufferSize + " events)"));
+                return;
+            }
+            try {
+                sendExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                fail(new IOException("SSE send pool unavailable", e));
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (queue) {
+                    event = queue.poll();
+                    if (event == null || closed.get()) {
+                        draining = false;
+                        return;
+                    }
+                }
+                sendStartedNanos = System.nanoTime();
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    // 클라이언트가 끊었거나 이미 완료된 연결
+                    fail(e);
+                } finally {
+                    sendStartedNanos = 0;
+                }
+            }
+        }
+
+        // 완료/타임아웃/오류 콜백이 여러 번 와도 구독 해제는 한 번만
+        private boolean close() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            synchronized (queue) {
+                queue.clear();
+            }
+            connections.remove(this);
+            stockCodes.forEach(subscriptionRegistry::release);
+            logger.debug("SSE stream closed ({} connections)", connections.size());
+            return true;
+        }
+
+        private void fail(Exception e) {
+            if (close()) {
+                logger.debug("SSE send failed: {}", e.getMessage());
+                emitter.completeWithError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.kb.stock.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 종목별 구독자 수 관리
+ * 구독자가 0 → 1 이 될 때 onFirstSubscriber, 1 → 0 이 될 때 onLastSubscriberGone 을 한 번씩 알린다.
+ * 같은 종목의 증감과 알림은 ConcurrentHashMap.compute 안에서 처리하므로 순서가 뒤바뀌지 않는다.
+ * 그래서 리스너는 짧게 끝나야 하고 이 레지스트리를 다시 호출하면 안 된다.
+ */
+@Component
+public class StockSubscriptionRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockSubscriptionRegistry.class);
+
+    public interface Listener {
+        void onFirstSubscriber(String stockCode);
+
+        void onLastSubscriberGone(String stockCode);
+    }
+
+    private final Map<String, Integer> subscriberCounts = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void acquire(String stockCode) {
+        subscriberCounts.compute(stockCode, (code, count) -> {
+            if (count == null) {
+                logger.debug("First subscriber for {}", code);
+                listeners.forEach(listener -> notify(() -> listener.onFirstSubscriber(code)));
+                return 1;
+            }
+            return count + 1;
+        });
+    }
+
+    public void release(String stockCode) {
+        subscriberCounts.computeIfPresent(stockCode, (code, count) -> {
+            if (count > 1) {
+                return count - 1;
+            }
+            logger.debug("Last subscriber gone for {}", code);
+            listeners.forEach(listener -> notify(() -> listener.onLastSubscriberGone(code)));
+            return null;
+        });
+    }
+
+    public int getSubscriberCount(String stockCode) {
+        return subscriberCounts.getOrDefault(stockCode, 0);
+    }
+
+    public boolean isSubscribed(String stockCode) {
+        return subscriberCounts.containsKey(stockCode);
+    }
+
+    public Set<String> getSubscribedStocks() {
+        return Set.copyOf(subscriberCounts.keySet());
+    }
+
+    // 리스너 오류가 구독자 수 갱신을 막지 않도록
+    private void notify(Runnable callback) {
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            logger.error("Subscription listener failed", e);
+        }
+    }
+}
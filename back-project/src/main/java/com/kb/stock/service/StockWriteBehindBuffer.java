@@ -0,0 +1,145 @@
+package com.kb.stock.service;
+
+import com.kb.stock.dto.StockDTO;
+import com.kb.stock.mapper.StockMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 시세 저장용 write-behind 버퍼
+ * 조회 스레드는 종목별 최신 시세만 버퍼에 넣고, 주기적으로 여러 종목을 한 번의 multi-row upsert 로 저장한다.
+ * 같은 종목이 저장 전에 다시 들어오면 최신 값으로 덮어쓴다.
+ */
+@Component
+public class StockWriteBehindBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockWriteBehindBuffer.class);
+
+    @Autowired
+    private StockMapper stockMapper;
+
+    @Value("${stock.write-behind.capacity:5000}")
+    private int capacity;
+
+    @Value("${stock.write-behind.flush-size:500}")
+    private int flushSize;
+
+    @Value("${stock.write-behind.offer-timeout-ms:5000}")
+    private long offerTimeoutMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Object flushMonitor = new Object();
+    private Map<String, StockDTO> pending = new LinkedHashMap<>();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong writtenCount = new AtomicLong();
+
+    /**
+     * 시세를 버퍼에 넣는다. 버퍼가 가득 차 있으면 비워질 때까지 최대 offer-timeout-ms 동안 대기한다.
+     * @return 버퍼에 넣었으면 true, 대기 시간 안에 자리가 나지 않으면 false
+     */
+    public boolean offer(StockDTO stock) throws InterruptedException {
+        lock.lock();
+        try {
+            if (pending.containsKey(stock.getStockCode())) {
+                pending.put(stock.getStockCode(), stock);
+                coalescedCount.incrementAndGet();
+                return true;
+            }
+
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+            while (pending.size() >= capacity) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = notFull.awaitNanos(remainingNanos);
+            }
+            pending.put(stock.getStockCode(), stock);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stock.write-behind.flush-interval-ms:1000}")
+    public void flush() {
+        synchronized (flushMonitor) {
+            Map<String, StockDTO> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            List<StockDTO> stocks = new ArrayList<>(batch.values());
+            long startTime = System.currentTimeMillis();
+            for (int i = 0; i < stocks.size(); i += flushSize) {
+                List<StockDTO> chunk = stocks.subList(i, Math.min(i + flushSize, stocks.size()));
+                try {
+                    stockMapper.upsertStocks(chunk);
+                    writtenCount.addAndGet(chunk.size());
+                } catch (Exception e) {
+                    logger.error("Error flushing {} stocks: {}", chunk.size(), e.getMessage(), e);
+                    requeue(chunk);
+                }
+            }
+            logger.info("Flushed {} stocks in {} ms", stocks.size(), System.currentTimeMillis() - startTime);
+        }
+    }
+
+    // 저장에 실패한 시세는 그 사이 더 새로운 값이 들어오지 않은 종목만 다시 넣는다
+    private void requeue(List<StockDTO> stocks) {
+        lock.lock();
+        try {
+            for (StockDTO stock : stocks) {
+                pending.putIfAbsent(stock.getStockCode(), stock);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Final flush of write-behind buffer");
+        flush();
+    }
+
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+}
@@ -2,42 +2,206 @@ package com.kb.stock.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * KIS 접근 토큰 / 실시간 접속키 관리
+ * - 유효한 값은 잠금 없이 바로 반환한다.
+ * - 발급은 앱키별로 한 스레드만 수행하고 나머지는 그 결과를 기다려 함께 쓴다.
+ * - 만료 refresh-margin 전부터 미리 갱신하며, 갱신 중에도 기존 값은 계속 반환한다.
+ * - 발급 결과는 KisTokenStore 에 저장해 재시작 시 다시 발급하지 않는다.
+ */
 @Service
 public class TokenService {
 
     private static final Logger logger = LoggerFactory.getLogger(TokenService.class);
 
-    @Value("${kis.api.appkey}")
-    private String appKey;
+    private static final Duration APPROVAL_KEY_VALIDITY = Duration.ofHours(24); // 접속키 유효기간 (24시간)
+    private static final long ISSUE_RETRY_BACKOFF_MS = 5000; // 발급 실패 직후 재시도 억제 시간
 
-    @Value("${kis.api.secretkey}")
-    private String appSecret;
+    @Autowired
+    private KisCredentialPool credentialPool;
+
+    @Autowired
+    private KisTokenStore tokenStore;
 
     @Value("${kis.api.base-url}")
     private String baseUrl;
 
+    @Value("${kis.token.refresh-margin-minutes:60}")
+    private long refreshMarginMinutes;
+
     private final RestTemplate restTemplate = new RestTemplate();
 
-    private String currentAccessToken;
-    private LocalDateTime tokenIssuedTime;
-    private long tokenExpiryDuration = 24 * 60 * 60; // 24시간 (초)
+    // 앱키별 마지막 발급 실패 시각 (kind 별)
+    private final Map<String, Long> lastIssueFailure = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void loadPersistedTokens() {
+        for (KisCredential credential : credentialPool.getCredentials()) {
+            KisToken accessToken = tokenStore.load(credential, KisTokenStore.ACCESS_TOKEN);
+            if (accessToken != null) {
+                credential.setAccessToken(accessToken);
+                logger.info("Reusing stored access token for {} (expires {})", credential, accessToken.getExpiresAt());
+            }
+            KisToken approvalKey = tokenStore.load(credential, KisTokenStore.APPROVAL_KEY);
+            if (approvalKey != null) {
+                credential.setApprovalKey(approvalKey);
+            }
+        }
+    }
 
-    // 토큰 발급 API 호출 메서드
+    // 토큰 발급 API 호출 메서드 (기본 앱키)
     public String requestNewToken() {
-        logger.info("새로운 Access Token 요청 중...");
+        return requestNewToken(credentialPool.primary());
+    }
+
+    // 유효기간과 관계없이 새로 발급 (앱키별)
+    public String requestNewToken(KisCredential credential) {
+        ReentrantLock lock = credential.getAccessTokenLock();
+        lock.lock();
+        try {
+            KisToken token = issueAndStore(credential, KisTokenStore.ACCESS_TOKEN);
+            return token != null ? token.getValue() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 토큰 유효성 확인 메서드
+    public boolean isTokenValid() {
+        return isTokenValid(credentialPool.primary());
+    }
+
+    public boolean isTokenValid(KisCredential credential) {
+        KisToken token = credential.getAccessToken();
+        return token != null && !token.isExpired(Instant.now());
+    }
+
+    // 유효한 토큰을 가져오는 메서드 (없으면 새로 발급)
+    public String getAccessToken() {
+        return getAccessToken(credentialPool.primary());
+    }
+
+    public String getAccessToken(KisCredential credential) {
+        return getOrIssue(credential, KisTokenStore.ACCESS_TOKEN);
+    }
+
+    // 실시간(WebSocket) 접속키 (없으면 새로 발급)
+    public String getApprovalKey() {
+        return getApprovalKey(credentialPool.primary());
+    }
+
+    public String getApprovalKey(KisCredential credential) {
+        return getOrIssue(credential, KisTokenStore.APPROVAL_KEY);
+    }
+
+    // 만료가 다가온 토큰/접속키를 요청이 몰리기 전에 미리 갱신
+    @Scheduled(fixedDelayString = "${kis.token.renew-check-interval-ms:600000}")
+    public void renewExpiringTokens() {
+        Instant now = Instant.now();
+        for (KisCredential credential : credentialPool.getCredentials()) {
+            for (String kind : new String[]{KisTokenStore.ACCESS_TOKEN, KisTokenStore.APPROVAL_KEY}) {
+                KisToken token = current(credential, kind);
+                if (token == null || !token.expiresWithin(refreshMargin(), now)) {
+                    continue;
+                }
+                ReentrantLock lock = lock(credential, kind);
+                lock.lock();
+                try {
+                    refreshIfDue(credential, kind);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    private String getOrIssue(KisCredential credential, String kind) {
+        Instant now = Instant.now();
+        KisToken token = current(credential, kind);
+        if (token != null && !token.expiresWithin(refreshMargin(), now)) {
+            return token.getValue();
+        }
+
+        ReentrantLock lock = lock(credential, kind);
+        if (token != null && !token.isExpired(now)) {
+            // 아직 쓸 수 있는 값: 갱신은 잠금을 잡은 한 스레드에 맡기고 나머지는 기존 값 사용
+            if (lock.tryLock()) {
+                try {
+                    refreshIfDue(credential, kind);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            KisToken latest = current(credential, kind);
+            return latest != null ? latest.getValue() : token.getValue();
+        }
+
+        // 없거나 만료됨: 한 스레드만 발급하고 나머지는 잠금에서 기다렸다가 그 결과를 사용
+        lock.lock();
+        try {
+            KisToken latest = current(credential, kind);
+            if (latest != null && !latest.isExpired(Instant.now())) {
+                return latest.getValue();
+            }
+            if (recentlyFailed(credential, kind)) {
+                return null;
+            }
+            KisToken issued = issueAndStore(credential, kind);
+            return issued != null ? issued.getValue() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 잠금을 잡은 상태에서 호출
+    private void refreshIfDue(KisCredential credential, String kind) {
+        KisToken token = current(credential, kind);
+        if (token != null && !token.expiresWithin(refreshMargin(), Instant.now())) {
+            return; // 다른 스레드가 이미 갱신함
+        }
+        if (!recentlyFailed(credential, kind)) {
+            issueAndStore(credential, kind);
+        }
+    }
+
+    private KisToken issueAndStore(KisCredential credential, String kind) {
+        KisToken token = KisTokenStore.ACCESS_TOKEN.equals(kind) ? issueAccessToken(credential) : issueApprovalKey(credential);
+        String failureKey = credential.getIndex() + "." + kind;
+        if (token == null) {
+            lastIssueFailure.put(failureKey, System.currentTimeMillis());
+            return null;
+        }
+        lastIssueFailure.remove(failureKey);
+        if (KisTokenStore.ACCESS_TOKEN.equals(kind)) {
+            credential.setAccessToken(token);
+        } else {
+            credential.setApprovalKey(token);
+        }
+        tokenStore.save(credential, kind, token);
+        return token;
+    }
+
+    private KisToken issueAccessToken(KisCredential credential) {
+        logger.info("새로운 Access Token 요청 중... {}", credential);
 
         String url = baseUrl + "/oauth2/tokenP";
         HttpHeaders headers = new HttpHeaders();
@@ -45,8 +209,8 @@ public class TokenService {
 
         Map<String, String> body = new HashMap<>();
         body.put("grant_type", "client_credentials");
-        body.put("appkey", appKey);
-        body.put("appsecret", appSecret);
+        body.put("appkey", credential.getAppKey());
+        body.put("appsecret", credential.getAppSecret());
 
         HttpEntity<Map<String, String>> request = new HttpEntity<>(body, headers);
         try {
@@ -58,12 +222,10 @@ public class TokenService {
             );
 
             if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                currentAccessToken = (String) response.getBody().get("access_token");
-                long expiresIn = (Integer) response.getBody().get("expires_in"); // 토큰 유효기간 (초)
-                tokenExpiryDuration = expiresIn;
-                tokenIssuedTime = LocalDateTime.now(); // 토큰 발급 시간 저장
-                logger.info("Access Token 발급 성공: {}", currentAccessToken);
-                return currentAccessToken;
+                String accessToken = (String) response.getBody().get("access_token");
+                long expiresIn = ((Number) response.getBody().get("expires_in")).longValue(); // 토큰 유효기간 (초)
+                logger.info("Access Token 발급 성공: {}", credential);
+                return new KisToken(accessToken, Instant.now().plusSeconds(expiresIn));
             } else {
                 logger.error("Access Token 발급 실패: {}", response.getBody());
                 return null;
@@ -74,25 +236,50 @@ public class TokenService {
         }
     }
 
-    // 토큰 유효성 확인 메서드
-    public boolean isTokenValid() {
-        if (currentAccessToken == null || tokenIssuedTime == null) {
-            return false; // 토큰이 없으면 유효하지 않음
+    private KisToken issueApprovalKey(KisCredential credential) {
+        logger.info("WebSocket Approval Key 발급 요청 중... {}", credential);
+
+        String url = baseUrl + "/oauth2/Approval";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        Map<String, String> body = new HashMap<>();
+        body.put("grant_type", "client_credentials");
+        body.put("appkey", credential.getAppKey());
+        body.put("secretkey", credential.getAppSecret());
+
+        HttpEntity<Map<String, String>> request = new HttpEntity<>(body, headers);
+        try {
+            ResponseEntity<Map> response = restTemplate.exchange(url, HttpMethod.POST, request, Map.class);
+
+            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
+                String approvalKey = (String) response.getBody().get("approval_key");
+                logger.info("WebSocket Approval Key 발급 성공: {}", credential);
+                return new KisToken(approvalKey, Instant.now().plus(APPROVAL_KEY_VALIDITY));
+            } else {
+                logger.error("WebSocket Approval Key 발급 실패: {}", response.getStatusCode());
+                return null;
+            }
+        } catch (Exception e) {
+            logger.error("WebSocket Approval Key 발급 중 오류 발생", e);
+            return null;
         }
+    }
 
-        long secondsElapsed = ChronoUnit.SECONDS.between(tokenIssuedTime, LocalDateTime.now());
-        return secondsElapsed < tokenExpiryDuration; // 24시간 내에 유효한지 확인
+    private boolean recentlyFailed(KisCredential credential, String kind) {
+        Long failedAt = lastIssueFailure.get(credential.getIndex() + "." + kind);
+        return failedAt != null && System.currentTimeMillis() - failedAt < ISSUE_RETRY_BACKOFF_MS;
     }
 
-    // 유효한 토큰을 가져오는 메서드 (없으면 새로 발급)
-    public String getAccessToken() {
-        if (isTokenValid()) {
-            logger.info("기존 유효한 토큰 반환");
-            return currentAccessToken;
-        } else {
-            return requestNewToken(); // 토큰이 없거나 만료되었으면 새로 발급
-        }
+    private KisToken current(KisCredential credential, String kind) {
+        return KisTokenStore.ACCESS_TOKEN.equals(kind) ? credential.getAccessToken() : credential.getApprovalKey();
     }
 
+    private ReentrantLock lock(KisCredential credential, String kind) {
+        return KisTokenStore.ACCESS_TOKEN.equals(kind) ? credential.getAccessTokenLock() : credential.getApprovalKeyLock();
+    }
 
-}
\ No newline at end of file
+    private Duration refreshMargin() {
+        return Duration.ofMinutes(refreshMarginMinutes);
+    }
+}
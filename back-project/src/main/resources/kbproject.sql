@@ -1091,85 +1091,43 @@ CREATE TABLE `stocks_candle` (
                                  stock_candle_low FLOAT NOT NULL,
                                  stock_candle_volume BIGINT,
                                  UNIQUE (stock_code, stock_candle_day)       -- 종목 코드와 날짜 중복 방지
-)
+);
+
+
+-- 실시간 시세로 서버가 만드는 1분봉 (StockCandleAggregator)
+-- stock.candle.minute-retention-days(기본 30일)보다 오래된 행은 장 마감 후 일봉을 쓴 다음 삭제
+CREATE TABLE `stocks_candle_minute` (
+                                 id BIGINT AUTO_INCREMENT PRIMARY KEY,       -- 고유 ID, 자동 증가
+                                 stock_code VARCHAR(10) NOT NULL,            -- 주식 종목 코드
+                                 stock_candle_time DATETIME NOT NULL,        -- 분봉 시작 시각
+                                 stock_candle_open FLOAT NOT NULL,           -- 시가
+                                 stock_candle_close FLOAT NOT NULL,          -- 종가
+                                 stock_candle_high FLOAT NOT NULL,           -- 고가
+                                 stock_candle_low FLOAT NOT NULL,            -- 저가
+                                 stock_candle_volume BIGINT,                 -- 1분 거래량
+                                 UNIQUE (stock_code, stock_candle_time),     -- 종목 코드와 시각 중복 방지
+                                 INDEX (stock_candle_time)                   -- 보관 기간 지난 분봉 삭제용
+);
 
 
 
-/*    !pip install finance-datareader
+/*  과거 일봉 적재
+    1) FinanceDataReader 로 종목별 CSV 를 한 번씩만 받는다 (DB 연결 없음, 5년치 한 번이면 모든 기간을 덮는다)
 
-import pymysql
-import FinanceDataReader as fdr
-from tqdm import tqdm
-from datetime import datetime, timedelta
+    !pip install finance-datareader
+    import os
+    import FinanceDataReader as fdr
+    from datetime import datetime, timedelta
 
-connection = pymysql.connect(
-    host='127.0.0.1',  # Replace with your DB host
-    port=3306,         # Replace with your DB port
-    user='root',       # Replace with your DB username
-    password='root',   # Replace with your DB password
-    db='kbproject',    # Replace with your DB name
-    charset='utf8mb4',
-    cursorclass=pymysql.cursors.DictCursor
-)
+    out = 'candles-csv'
+    os.makedirs(out, exist_ok=True)
+    start = (datetime.today() - timedelta(weeks=260)).strftime('%Y-%m-%d')
+    for code in fdr.StockListing('KOSPI')['Code']:
+        fdr.DataReader(code, start=start).to_csv(f'{out}/{code}.csv')
+
+    2) 서버 설정(application.properties)의 DB 로 일괄 적재 (종목별 병렬, JDBC 배치, 중단 후 재실행하면 이어서)
 
-from datetime import datetime, timedelta
-# Cursor 생성
-cursor = connection.cursor()
-# KOSPI 전 종목 코드 가져오기
-stocks = fdr.StockListing('KOSPI')
-# 기간별 시작일 설정 함수
-def get_start_date(period):
-    today = datetime.today()
-    if period == '1day':
-        return today - timedelta(days=1)
-    elif period == '1week':
-        return today - timedelta(weeks=1)
-    elif period == '1month':
-        return today - timedelta(weeks=4)
-    elif period == '3months':
-        return today - timedelta(weeks=12)
-    elif period == '1year':
-        return today - timedelta(weeks=52)
-    elif period == '3years':
-        return today - timedelta(weeks=156)
-    elif period == '5years':
-        return today - timedelta(weeks=260)
-# 원하는 기간 리스트 (1일, 1주, 1개월, 3개월, 1년, 3년, 5년)
-periods = ['1day', '1week', '1month', '3months', '1year', '3years', '5years']
-# 데이터베이스에 데이터 저장
-for index, row in tqdm(stocks.iterrows()):
-    stock_code = row['Code']
-    print(stock_code)
-    for period in periods:
-        start_date = get_start_date(period).strftime('%Y-%m-%d')
-        end_date = datetime.today().strftime('%Y-%m-%d')
-        # FinanceDataReader를 사용하여 각 기간별 일봉 데이터 가져오기
-        stock_data = fdr.DataReader(stock_code, start=start_date, end=end_date)
-        for index, row in stock_data.iterrows():
-            stock_candle_day = index.strftime('%Y-%m-%d')
-            stock_candle_open = row['Open']
-            stock_candle_close = row['Close']
-            stock_candle_high = row['High']
-            stock_candle_low = row['Low']
-            stock_candle_volume = row['Volume']  # 거래량 추가
-            # JPA로 생성된 테이블에 맞게 insert 쿼리 작성
-            query = """
-            INSERT INTO stocks_candle (stock_code, stock_candle_day, stock_candle_open, stock_candle_close, stock_candle_high, stock_candle_low, stock_candle_volume)
-            VALUES (%s, %s, %s, %s, %s, %s, %s)
-            ON DUPLICATE KEY UPDATE
-                stock_candle_open = VALUES(stock_candle_open),
-                stock_candle_close = VALUES(stock_candle_close),
-                stock_candle_high = VALUES(stock_candle_high),
-                stock_candle_low = VALUES(stock_candle_low),
-                stock_candle_volume = VALUES(stock_candle_volume)  # 거래량 업데이트
-            """
-            # 쿼리 실행
-            cursor.execute(query, (stock_code, stock_candle_day, stock_candle_open, stock_candle_close, stock_candle_high, stock_candle_low, stock_candle_volume))
-        # 하나의 종목 데이터 처리 후 커밋
-        connection.commit()
-# 커서와 연결 종료
-cursor.close()
-connection.close()
+    ./gradlew importCandles -PimportArgs="--dir=candles-csv --threads=8"
 */
 
 